@@ -3,9 +3,9 @@ package agents;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.field.grid.Grid2D;
-import sim.field.grid.SparseGrid2D;
 import sim.util.Bag;
 import simulation.FreezingSim;
+import space.AgentSpace;
 import java.lang.Math;
 
 public class Aggregator implements Steppable {
@@ -33,10 +33,9 @@ public class Aggregator implements Steppable {
 		return;
 	}
 	protected void move() {
-		SparseGrid2D space = sim.acquireSpace();
+		AgentSpace space = sim.acquireAgentSpace();
 		int tempx = x + dirx;
 		int tempy = y + diry;
-		//Bag b = space.getObjectsAtLocation(tempx, tempy);
 		
 			if(this.edgeCheck(sim, tempx, tempy))
 			{
@@ -52,9 +51,7 @@ public class Aggregator implements Steppable {
 					tempx = space.stx(x+ dirx);
 					tempy = space.sty(y+ diry);
 				}
-				x=tempx;
-				y=tempy;
-				space.setObjectLocation(this, x, y);
+				moveTo(space, tempx, tempy);
 			}
 			
 		
@@ -66,18 +63,25 @@ public class Aggregator implements Steppable {
 		}
 		
 		else {
-		x = tempx;
-		y = tempy;
-		space.setObjectLocation(this, x, y);
+		moveTo(space, tempx, tempy);
 		}
 		
 		return;
 	}
 	
-	public boolean aggregateCheck(SparseGrid2D space, int tempx, int tempy){
-		Bag b = space.getObjectsAtLocation(tempx, tempy);
-		if(b!=null) {
-			Aggregator nextObj = (Aggregator) b.objs[0];
+	/**
+	 * Move to a new location.
+	 */
+	private void moveTo(AgentSpace space, int tempx, int tempy) {
+		space.move(this, x, y, tempx, tempy);
+		x = tempx;
+		y = tempy;
+		return;
+	}
+	
+	public boolean aggregateCheck(AgentSpace space, int tempx, int tempy){
+		Aggregator nextObj = (Aggregator) space.getObjectAt(tempx, tempy);
+		if(nextObj!=null) {
 			if(nextObj.frozen==true)
 				return true;
 		}
@@ -101,7 +105,8 @@ public class Aggregator implements Steppable {
 	
 	protected Bag returnBag(int r)
 	{
-		Bag neighbhors = sim.acquireSpace().getMooreNeighbors(x, y, r, Grid2D.BOUNDED, true);
+		// the bag is shared, so it is only good until the next neighborhood query
+		Bag neighbhors = sim.acquireAgentSpace().getMooreNeighbors(x, y, r, Grid2D.BOUNDED, true, sim.acquireNeighborBuffer());
 		return neighbhors; 
 	}
 	protected void randomizeMovement() {
@@ -122,12 +127,12 @@ public class Aggregator implements Steppable {
 	}
 	
 	public int getNNeighbors() {
-		SparseGrid2D sp = sim.acquireSpace();
-		int mode = SparseGrid2D.BOUNDED;
+		AgentSpace sp = sim.acquireAgentSpace();
+		int mode = Grid2D.BOUNDED;
 		if(sim.isBounded()) {
-			mode = SparseGrid2D.TOROIDAL;
+			mode = Grid2D.TOROIDAL;
 		}
-		Bag b = sp.getMooreNeighbors(x, y, 1, mode, true);
+		Bag b = sp.getMooreNeighbors(x, y, 1, mode, true, sim.acquireNeighborBuffer());
 		if (b==null) {
 			return 0;
 		}
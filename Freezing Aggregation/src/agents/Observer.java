@@ -16,7 +16,7 @@ public class Observer implements Steppable {
 	@Override
 	public void step(SimState state) {
 		// TODO Auto-generated method stub
-		Bag agents = sim.acquireSpace().allObjects;
+		Bag agents = sim.acquireAgentSpace().getAllObjects();
 		int nFrozen = 0;
 		double distSum = 0;
 		int nNeighborsSum = 0;
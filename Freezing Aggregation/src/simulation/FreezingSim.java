@@ -2,6 +2,10 @@ package simulation;
 
 import agents.Aggregator;
 import agents.Observer;
+import sim.util.Bag;
+import space.AgentSpace;
+import space.DenseAgentSpace;
+import space.SparseAgentSpace;
 import states.SimStateSparseGrid2D;
 
 public class FreezingSim extends SimStateSparseGrid2D {
@@ -15,6 +19,8 @@ public class FreezingSim extends SimStateSparseGrid2D {
     boolean uniqueLocation = true;
     //boolean toroidal = true;
     boolean bounded = false; 
+    AgentSpace agentSpace;
+    Bag neighborBuffer = new Bag();	// reused by every agent's neighborhood query
     // as both p and and n increase aggregation becomes faster
     public FreezingSim(long seed) {
         super(seed);
@@ -22,7 +28,7 @@ public class FreezingSim extends SimStateSparseGrid2D {
 
     public void makeAgents() {
         Aggregator a = new Aggregator(x0, y0, 0, 0, true, this);
-        space.setObjectLocation(a, x0, y0);
+        agentSpace.add(a, x0, y0);
         schedule.scheduleRepeating(a);
         for (int i = 0; i < n - 1; i++) {
         	int x;
@@ -45,7 +51,7 @@ public class FreezingSim extends SimStateSparseGrid2D {
                 ydir = random.nextInt(3) - 1;
         	}
         	a = new Aggregator(x, y, xdir, ydir, false, this);
-            space.setObjectLocation(a, x, y);
+            agentSpace.add(a, x, y);
             schedule.scheduleRepeating(a);
         }
         return;
@@ -54,10 +60,32 @@ public class FreezingSim extends SimStateSparseGrid2D {
     public void start() {
         super.start();
         makeSpace(gridWidth, gridHeight);
+        makeAgentSpace();
         makeAgents();
         //makeObserver();
         return;
     }
+
+    /**
+     * Make the space agents live in. This is always the sparse grid: agents can share a cell, and in an unbounded run they can step off the
+     * grid, neither of which a {@link DenseAgentSpace} can hold.
+     */
+    public void makeAgentSpace() {
+    	agentSpace = new SparseAgentSpace(space);
+    	return;
+    }
+
+    public AgentSpace acquireAgentSpace() {
+    	return agentSpace;
+    }
+
+    /**
+     * Get the bag agents collect their neighbors into. There is only one, so its contents are only good until the next agent's query.
+     */
+    public Bag acquireNeighborBuffer() {
+    	return neighborBuffer;
+    }
+
     public void makeObserver() {
     	Observer o = new Observer(this);
     	schedule.scheduleRepeating(0,10,o);
@@ -125,4 +153,5 @@ public class FreezingSim extends SimStateSparseGrid2D {
 	public void setBounded(boolean bounded) {
 		this.bounded = bounded;
 	}
+
 }
\ No newline at end of file
@@ -5,9 +5,9 @@ import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
 import sim.field.grid.Grid2D;
-import sim.field.grid.SparseGrid2D;
 import sim.util.Bag;
 import simulation.KHSim;
+import space.AgentSpace;
 
 /**
  * An agent that goes on dates and makes mating decisions based on Kalick & Hamilton (1986), "The Matching Hypothesis Revisited."
@@ -18,35 +18,64 @@ public class Agent implements Steppable {
 	private boolean female;				// true for female, false for male
 	private double attractiveness;		// we use a double in case we want to do fancier things later
 	private double dates = 0;			// number of dates this agent has been on
-	private boolean dated = false;		// has the agent dated in this time step?
+	private long datedStep = -1;		// time step in which the agent last dated; it has dated in this step if this is the current step
+	private long bornStep = -1;			// time step in which a pooled agent was brought back; it starts stepping in the next one
 	private int x, y,dirx,diry;					// agent's location in space
 
 
 	private Stoppable stopper;			// object used to stop this agent when it is no longer in the simulation
+	int registrySlot = -1;				// position in the simulation's AgentRegistry
 	private KHSim sim;
-	private SparseGrid2D space;
+	private AgentSpace space;
 
 	public Agent(KHSim sim, boolean female, double attractiveness, int x, int y) {
 		this.sim = sim;
-		space = sim.acquireSpace();				// make it easy to do things with space in methods
+		space = sim.acquireAgentSpace();		// make it easy to do things with space in methods
 		this.attractiveness = attractiveness;
 		this.female = female;
 		this.x = x;
 		this.y = y;
 	}
 
+	/**
+	 * Bring a dormant agent from the {@link AgentPool} back as a new agent, exactly as if it had just been constructed. It keeps its place
+	 * on the schedule but doesn't step until the next time step, like a newly scheduled agent.
+	 * @param female true for a female agent
+	 * @param attractiveness new attractiveness
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void rebirth(boolean female, double attractiveness, int x, int y) {
+		this.female = female;
+		this.attractiveness = attractiveness;
+		this.x = x;
+		this.y = y;
+		dirx = 0;
+		diry = 0;
+		dates = 0;
+		datedStep = -1;
+		bornStep = sim.schedule.getSteps();
+		return;
+	}
+
 	public void step(SimState state) {
-		if (dated) {					// if someone has already dated this agent, we are done for this time step
+		if (registrySlot < 0) {			// dormant in the pool
+			if (sim.acquireRegistry().size() == 0) {
+				stopper.stop();
+			}
+			return;
+		}
+		if (isDated() || bornStep == sim.schedule.getSteps()) {	// if someone has already dated this agent, we are done for this time step
 			return;
 		}
 		if(sim.isAggregate())
 			aggregate(sim.getAggregateDistance());
-		if(sim.random.nextBoolean(sim.getpRandomMove())) 
+		if(sim.acquireRandomMoveEvents().next(sim.getpRandomMove())) 
 			randomizeMovement();
 		move();
 		if(!sim.isLocalDating())
 		{
-			Bag agents = space.allObjects;
+			Bag agents = sim.acquireRegistry().acquireAgents();
 			Agent a = findDate(agents);
 			if (a == null) {				// if there's no one to date, we're done
 				return;
@@ -55,7 +84,7 @@ public class Agent implements Steppable {
 		}
 		else
 		{
-			Bag dates = space.getMooreNeighbors(x, y, sim.getSearchRadius(), Grid2D.TOROIDAL, true);
+			Bag dates = space.getMooreNeighbors(x, y, sim.getSearchRadius(), Grid2D.TOROIDAL, true, sim.acquireNeighborBuffer());
 			Agent a = findDate(dates);
 			if (a != null)
 				date(a);
@@ -65,24 +94,22 @@ public class Agent implements Steppable {
 	}
 	
 	protected void move() {
-		SparseGrid2D space = sim.acquireSpace();
 		int tempx = space.stx(x + dirx);
 		int tempy = space.sty(y + diry);
-		Bag b = space.getObjectsAtLocation(tempx, tempy);
-		if(b!=null) {
+		if(!space.isEmpty(tempx, tempy)) {
 			dirx = -dirx;
 			diry = -diry;
 			tempx = space.stx(x+dirx);
 			tempy = space.sty(y+diry);
 		}
+		space.move(this, x, y, tempx, tempy);
 		x = tempx;
 		y = tempy;
-		space.setObjectLocation(this, x, y);
 		return;
 	}
 
 	protected void aggregate(int r) {
-		Bag neighbors = sim.acquireSpace().getMooreNeighbors(x, y, r, Grid2D.TOROIDAL, true);
+		Bag neighbors = space.getMooreNeighbors(x, y, r, Grid2D.TOROIDAL, true, sim.acquireNeighborBuffer());
 		int threshold = (int)Math.round(sim.getChuminess()* (4 * r * r + 4 * r));
 		int count = 0;
 		double xs = 0, ys = 0;
@@ -181,13 +208,14 @@ public class Agent implements Steppable {
 		if (agents == null || agents.numObjs == 0) { 	// if there's no one left in the bag, there is no option for a date
 			return null;
 		}
+		long now = sim.schedule.getSteps();
 		int r = sim.random.nextInt(agents.numObjs);
 		for (int i = r; i < agents.numObjs; i++) {		// we start searching at the random number -- this way we get the first ELIGIBLE
 			Agent a = (Agent) agents.objs[i];			//     date even if the random number we drew was a non-eligible agent
 			if (a == this) {
 				continue;
 			}
-			if (!a.dated && female != a.female) {		// this could change if we also wanted to model non-heterosexual couples (as would 
+			if (a.datedStep != now && female != a.female) {		// this could change if we also wanted to model non-heterosexual couples (as would 
 				return a;								//     this test in the second loop)
 			}
 		}
@@ -196,7 +224,7 @@ public class Agent implements Steppable {
 			if (a == this) {
 				continue;
 			}
-			if (!a.dated && female != a.female) {		// this could change if we also wanted to model non-heterosexual couples (as would
+			if (a.datedStep != now && female != a.female) {		// this could change if we also wanted to model non-heterosexual couples (as would
 				return a;								//     this test in the first loop)
 			}
 		}
@@ -226,8 +254,8 @@ public class Agent implements Steppable {
 			this.remove();														// ... and remove both agents from the simulation
 			other.remove();
 		} else {																// otherwise (date did not succeed) ...
-			dated = true;														// ... set both agent's so they can't date again this step
-			other.dated = true;
+			datedStep = sim.schedule.getSteps();								// ... set both agent's so they can't date again this step
+			other.datedStep = datedStep;
 			dates++;															// ... increment both agents' date counters 
 			other.dates++;
 		}
@@ -240,19 +268,22 @@ public class Agent implements Steppable {
 	private void remove() {
 		if(sim.isReplacement()) {
 			sim.makeAgent(this.female);}
-		space.remove(this);		// out of space
-		stopper.stop();			// off the schedule
+		space.remove(this, x, y);	// out of space
+		sim.acquireRegistry().remove(this);
+		if (sim.acquirePool() == null || !sim.acquirePool().offer(this)) {
+			stopper.stop();		// off the schedule
+		}
 		return;
 	}
 	
 	/**
-	 * Reset the agent at the end of a step so it can date again on the next step.
+	 * Get the stopper that removes this agent from the schedule.
+	 * @return stopper, or null if the agent hasn't been scheduled
 	 */
-	public void reset() {
-		dated = false;
-		return;
+	public Stoppable acquireStopper() {
+		return stopper;
 	}
-	
+
 	/**
 	 * Set the stopper for this agent so it can remove itself from the schedule
 	 * @param s stopper returned from schedule when this agent is scheduled repeating
@@ -291,7 +322,7 @@ public class Agent implements Steppable {
 	 * @return true if agent has already dated
 	 */
 	public boolean isDated() {
-		return dated;
+		return datedStep == sim.schedule.getSteps();
 	}
 
 	/**
@@ -0,0 +1,72 @@
+package agents;
+
+import ec.util.MersenneTwisterFast;
+import sim.util.Bag;
+
+/**
+ * Every living {@link Agent}, packed into a bag with no gaps. Each agent remembers its slot, so removing one moves the last agent into the
+ * hole instead of searching or shifting, and a uniformly random living agent is a single array read. The simulation adds agents as they are
+ * made and agents remove themselves when they die.
+ */
+public final class AgentRegistry {
+
+	private Bag agents = new Bag();
+
+	/**
+	 * Add a new agent.
+	 * @param a the agent
+	 */
+	public void add(Agent a) {
+		a.registrySlot = agents.numObjs;
+		agents.add(a);
+		return;
+	}
+
+	/**
+	 * Remove an agent. Removing an agent that isn't registered does nothing.
+	 * @param a the agent
+	 */
+	public void remove(Agent a) {
+		int slot = a.registrySlot;
+		if (slot < 0) {
+			return;
+		}
+		int last = agents.numObjs - 1;
+		Agent moved = (Agent)agents.objs[last];
+		agents.objs[slot] = moved;
+		moved.registrySlot = slot;
+		agents.objs[last] = null;
+		agents.numObjs = last;
+		a.registrySlot = -1;
+		return;
+	}
+
+	/**
+	 * Pick a living agent uniformly at random.
+	 * @param random the simulation's random number generator
+	 * @return random agent, or null if there are none
+	 */
+	public Agent random(MersenneTwisterFast random) {
+		if (agents.numObjs == 0) {
+			return null;
+		}
+		return (Agent)agents.objs[random.nextInt(agents.numObjs)];
+	}
+
+	/**
+	 * Number of living agents.
+	 * @return agents
+	 */
+	public int size() {
+		return agents.numObjs;
+	}
+
+	/**
+	 * Every living agent, in no particular order. The bag belongs to the registry and must not be modified.
+	 * @return all agents
+	 */
+	public Bag acquireAgents() {
+		return agents;
+	}
+
+}
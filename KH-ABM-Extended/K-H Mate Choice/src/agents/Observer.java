@@ -3,7 +3,6 @@ package agents;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
-import sim.util.Bag;
 import simulation.KHSim;
 
 public class Observer implements Steppable {
@@ -23,8 +22,7 @@ public class Observer implements Steppable {
 	
 	public void step(SimState state) {
 		printData();			// get and print current time step stats
-		setDated();				// reset all agents left in the simulation so they can date on the next time step
-		if (sim.acquireSpace().getAllObjects().numObjs == 0) {	// if there are no agents left in the simulation, we stop the observer so
+		if (sim.acquireAgentSpace().numObjects() == 0) {	// if there are no agents left in the simulation, we stop the observer so
 			stopper.stop();										//     the simulation doesn't keep running just for the observer
 		}
 		return;
@@ -34,7 +32,7 @@ public class Observer implements Steppable {
 	 * Set up observer; should be called in simulation's start method. In this case, we just print the data column headers.
 	 */
 	public void start() {
-		System.out.println("steps\tpairs\tcorrelation\tmaleA\t\tfemaleA");
+		sim.acquireOutput().println("steps\tpairs\tcorrelation\tmaleA\t\tfemaleA");
 		return;
 	}
 	
@@ -77,19 +75,6 @@ public class Observer implements Steppable {
 		return num / div;
 	}
 	
-	/**
-	 * Reset all agents left in the simulation (that is, unmated) so they can go on dates in the next time step. This is probably just
-	 * setting their <i>dated</i> field to <i>false</i>, though that is up to the agent class.
-	 */
-	private void setDated() {
-		Bag agents = sim.acquireSpace().allObjects;
-		for (int i = 0; i < agents.numObjs; i++) {
-			Agent a = (Agent)agents.objs[i];
-			a.reset();
-		}
-		return;
-	}
-	
 	/**
 	 * Get data for the current time step and print it to the output.
 	 */
@@ -98,7 +83,7 @@ public class Observer implements Steppable {
 		double maleAvg = sumM / n;
 		double femaleAvg = sumF / n;
 		long step = sim.schedule.getSteps();
-		System.out.println(step + "\t" + n + "\t" + format(correlation) + "\t" + format(maleAvg) + "\t" + format(femaleAvg));
+		sim.acquireOutput().println(step + "\t" + n + "\t" + format(correlation) + "\t" + format(maleAvg) + "\t" + format(femaleAvg));
 		return;
 	}
 	
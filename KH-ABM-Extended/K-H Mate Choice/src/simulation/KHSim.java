@@ -1,7 +1,15 @@
 package simulation;
 
+import java.io.PrintStream;
+
 import agents.Agent;
+import agents.AgentPool;
+import agents.AgentRegistry;
 import agents.Observer;
+import sim.util.Bag;
+import space.AgentSpace;
+import space.FreeCellIndex;
+import space.SparseAgentSpace;
 import states.SimStateSparseGrid2D;
 
 public class KHSim extends SimStateSparseGrid2D {
@@ -20,8 +28,16 @@ public class KHSim extends SimStateSparseGrid2D {
 	protected int searchRadius = 1;
 	protected boolean localDating = true;
 	protected boolean replacement = true;
+	protected boolean emptyCellPlacement = false;	// place new agents (including replacements) only in empty cells?
+	protected boolean poolAgents = false;			// reuse mated agents as their replacements?
 	
 	private Observer observer;
+	private AgentSpace agentSpace;
+	private AgentRegistry registry;				// every unmated agent
+	private PrintStream output = System.out;	// where the observer writes its data
+	private Bag neighborBuffer = new Bag();		// reused by every agent's neighborhood query
+	private RareEventSampler randomMoveEvents;	// random changes of direction, at pRandomMove
+	private AgentPool pool;						// mated agents waiting to be reused, or null if agents aren't pooled
 
 	public KHSim(long seed) {
 		super(seed);
@@ -30,6 +46,10 @@ public class KHSim extends SimStateSparseGrid2D {
 	public void start() {
 		super.start();
 		makeSpace(gridWidth, gridHeight);
+		randomMoveEvents = new RareEventSampler(random);
+		registry = new AgentRegistry();
+		pool = poolAgents && replacement ? new AgentPool(males + females) : null;
+		agentSpace = new SparseAgentSpace(space, emptyCellPlacement);	// agents can share cells, so this model always uses the sparse grid
 		makeAgents();
 		observer = makeObserver();
 		return;
@@ -50,35 +70,57 @@ public class KHSim extends SimStateSparseGrid2D {
 	
 	/**
 	 * Make an agent and put it into space and add it to the schedule. If <i>female</i> is true, this is a female agent; otherwise, it is a
-	 * male agent. The new agent is located randomly in space (no attempt is made to prevent two agents from sharing the same space at the
-	 * time it is created, though movement rules may prevent this at late time steps). The agent's attractiveness is drawn from a uniform
+	 * male agent. The new agent is located randomly in space. Unless <i>emptyCellPlacement</i> is set, no attempt is made to prevent two
+	 * agents from sharing the same space at the time it is created (though movement rules may prevent this at late time steps); if it is
+	 * set, the location is a uniformly random empty cell drawn from the space's free-cell index, or any cell if the grid is full. The agent's attractiveness is drawn from a uniform
 	 * distribution between 1 and the value in this class's field <i>maxAttractiveness</i>. Agents are scheduled at the default order (0)
 	 * to step repeatedly; the agent's stopper field is also set so that the agent may remove itself from the schedule at a later time.
-	 * Agents are given a color depending on their gender: female agents are black and male agents are green.
+	 * Agents are given a color depending on their gender: female agents are black and male agents are green. Colors are only set when a
+	 * GUI is attached, so headless runs never create portrayals. If agents are pooled, a dormant agent that has already mated is reused
+	 * (keeping its place on the schedule) before a new one is made.
 	 * @param female <i>true</i> for the new agent to be female
 	 * @return the new agent
 	 */
 	
 	public Agent makeAgent(boolean female) {
-		int x = random.nextInt(gridWidth);
-		int y = random.nextInt(gridHeight);
+		int x, y;
+		FreeCellIndex free = agentSpace.acquireFreeCells();
+		int cell = free == null ? FreeCellIndex.NONE : free.sample(random);
+		if (cell != FreeCellIndex.NONE) {
+			x = free.x(cell);
+			y = free.y(cell);
+		} else {
+			x = random.nextInt(gridWidth);
+			y = random.nextInt(gridHeight);
+		}
 		double attractiveness = random.nextInt(maxAttractiveness)+1;
-		Agent a = new Agent(this, female, attractiveness, x, y);
-		float red = 0, green = 0, blue = 0;							// default color is black
-		if (!female) {												// change it to green for males
-			green = 1;
+		Agent a = pool == null ? null : pool.take();
+		if (a == null) {
+			a = new Agent(this, female, attractiveness, x, y);
+		} else {
+			a.rebirth(female, attractiveness, x, y);
+		}
+		if (hasGUI()) {												// portrayals are only needed when there is a display
+			float red = 0, green = 0, blue = 0;						// default color is black
+			if (!female) {											// change it to green for males
+				green = 1;
+			}
+			// next line uses transparency ("alpha") to make less attractive agents lighter in color and more attractive agents more solid
+			gui.setOvalPortrayal2DColor(a, red, green, blue, (float)(attractiveness / maxAttractiveness));
+		}
+		agentSpace.add(a, x, y);									// put the agent in space
+		registry.add(a);
+		if (a.acquireStopper() == null) {
+			a.attachStopper(schedule.scheduleRepeating(a));			// put agent on the schedule and set its stopper
 		}
-		// next line uses transparency ("alpha") to make less attractive agents lighter in color and more attractive agents more solid
-		gui.setOvalPortrayal2DColor(a, red, green, blue, (float)(attractiveness / maxAttractiveness));
-		space.setObjectLocation(a, x, y);							// put the agent in space
-		a.attachStopper(schedule.scheduleRepeating(a));				// put agent on the schedule and set its stopper
 		return a;
 	}
 	
 	/**
-	 * Make one new Observer agent to report statistics and model progress and to reset agents' <i>dated</i> field at the end of every time
-	 * step. The agent is scheduled at order <b>10</b> so that it always steps after the dating agents (which are scheduled at ordering 0
-	 * in {@link #makeAgent(boolean)}). The observer does not exist in space since it observes all agents.
+	 * Make one new Observer agent to report statistics and model progress at the end of every time step. The agent is scheduled at order
+	 * <b>10</b> so that it reports after the dating agents (which are scheduled at ordering 0 in {@link #makeAgent(boolean)}) have stepped.
+	 * Agents stamp the step in which they dated, so nothing needs resetting between steps. The observer does not exist in space since it
+	 * observes all agents.
 	 * @return the new observer
 	 */
 	private Observer makeObserver() {
@@ -88,6 +130,47 @@ public class KHSim extends SimStateSparseGrid2D {
 		return o;
 	}
 	
+	/**
+	 * Get the space agents live in. This wraps the sparse grid the GUI draws.
+	 * @return agent space
+	 */
+	public AgentSpace acquireAgentSpace() {
+		return agentSpace;
+	}
+	
+	/**
+	 * Get the registry of agents still in the simulation, which global dating picks dates from.
+	 * @return agent registry
+	 */
+	public AgentRegistry acquireRegistry() {
+		return registry;
+	}
+	
+	/**
+	 * Get the pool of mated agents waiting to be reused as replacements.
+	 * @return agent pool, or null if <i>poolAgents</i> or <i>replacement</i> is off
+	 */
+	public AgentPool acquirePool() {
+		return pool;
+	}
+	
+	/**
+	 * Get the bag agents collect their neighbors into. There is only one, so its contents are only good until the next agent's query.
+	 * @return shared neighbor buffer
+	 */
+	public Bag acquireNeighborBuffer() {
+		return neighborBuffer;
+	}
+	
+	/**
+	 * Get the sampler that decides when an agent picks a new random direction. When <i>pRandomMove</i> is small this skips ahead instead
+	 * of drawing a random number for every agent.
+	 * @return random move sampler
+	 */
+	public RareEventSampler acquireRandomMoveEvents() {
+		return randomMoveEvents;
+	}
+	
 	/**
 	 * Get this simulation's observer.
 	 * @return the observer
@@ -95,6 +178,23 @@ public class KHSim extends SimStateSparseGrid2D {
 	public Observer acquireObserver() {
 		return observer;
 	}
+	
+	/**
+	 * Get the stream the observer writes its data to. This is standard output unless another stream has been attached.
+	 * @return data output stream
+	 */
+	public PrintStream acquireOutput() {
+		return output;
+	}
+	
+	/**
+	 * Set the stream the observer writes its data to. Must be called before {@link #start()} so the column headers go to the same place.
+	 * @param output data output stream
+	 */
+	public void attachOutput(PrintStream output) {
+		this.output = output;
+		return;
+	}
 
 	/**
 	 * Get the width of the space. This is the number of cells that an agent can be located at from left to right, not the number of pixels
@@ -317,4 +417,24 @@ public class KHSim extends SimStateSparseGrid2D {
 		this.replacement = replacement;
 	}
 
+	/**
+	 * Are new agents, including replacements, only placed in empty cells? If not, they can land on top of other agents.
+	 * @return true if new agents go in empty cells
+	 */
+	public boolean isEmptyCellPlacement() {
+		return emptyCellPlacement;
+	}
+
+	public void setEmptyCellPlacement(boolean emptyCellPlacement) {
+		this.emptyCellPlacement = emptyCellPlacement;
+	}
+
+	public boolean isPoolAgents() {
+		return poolAgents;
+	}
+
+	public void setPoolAgents(boolean poolAgents) {
+		this.poolAgents = poolAgents;
+	}
+
 }
@@ -0,0 +1,120 @@
+package space;
+
+import sim.util.Bag;
+
+/**
+ * The grid that agents live on, as the model sees it. The model codes against this interface instead of a particular MASON field, so the
+ * storage behind it can be swapped. Agents in this model can share a cell (new agents may be placed without looking), so the only backend here
+ * is {@link SparseAgentSpace}, which wraps MASON's {@link sim.field.grid.SparseGrid2D}; a one-agent-per-cell array backend like the one in
+ * the PD and freezing models would not be correct.
+ *
+ * <p>Agents always know where they are, so every change passes the agent's current location along; that is what lets the dense backend work
+ * without a reverse index from objects to locations.
+ */
+public interface AgentSpace {
+
+	public int getWidth();
+
+	public int getHeight();
+
+	/**
+	 * Wrap an x-coordinate that is at most one width outside the grid (toroidal space).
+	 * @param x x-coordinate
+	 * @return wrapped x-coordinate
+	 */
+	public int stx(int x);
+
+	/**
+	 * Wrap a y-coordinate that is at most one height outside the grid (toroidal space).
+	 * @param y y-coordinate
+	 * @return wrapped y-coordinate
+	 */
+	public int sty(int y);
+
+	/**
+	 * Is there nothing at this location?
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return true if no agent is at (x, y)
+	 */
+	public boolean isEmpty(int x, int y);
+
+	/**
+	 * Get an agent at this location. If there are several, which one is returned is unspecified.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return an agent at (x, y) or null
+	 */
+	public Object getObjectAt(int x, int y);
+
+	/**
+	 * Put a new agent into space.
+	 * @param o the agent
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void add(Object o, int x, int y);
+
+	/**
+	 * Move an agent that is already in space.
+	 * @param o the agent
+	 * @param fromx current x-coordinate
+	 * @param fromy current y-coordinate
+	 * @param tox new x-coordinate
+	 * @param toy new y-coordinate
+	 */
+	public void move(Object o, int fromx, int fromy, int tox, int toy);
+
+	/**
+	 * Take an agent out of space.
+	 * @param o the agent
+	 * @param x current x-coordinate
+	 * @param y current y-coordinate
+	 */
+	public void remove(Object o, int x, int y);
+
+	/**
+	 * Number of agents in space.
+	 * @return number of agents
+	 */
+	public int numObjects();
+
+	/**
+	 * Every agent in space. The bag belongs to the space and must not be modified.
+	 * @return all agents
+	 */
+	public Bag getAllObjects();
+
+	/**
+	 * Get the agents within <i>dist</i> cells of (<i>x</i>, <i>y</i>), as {@link sim.field.grid.SparseGrid2D#getMooreNeighbors(int, int, int,
+	 * int, boolean)} does.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @param dist neighborhood radius
+	 * @param mode {@link sim.field.grid.Grid2D#TOROIDAL} or {@link sim.field.grid.Grid2D#BOUNDED}
+	 * @param includeOrigin include agents at (x, y)?
+	 * @return neighboring agents
+	 */
+	public Bag getMooreNeighbors(int x, int y, int dist, int mode, boolean includeOrigin);
+
+	/**
+	 * Get the agents within <i>dist</i> cells of (<i>x</i>, <i>y</i>) into a bag the caller owns, so a query allocates nothing once the bag
+	 * has grown to the usual neighborhood size. The bag is cleared first; agents are in the same order as
+	 * {@link #getMooreNeighbors(int, int, int, int, boolean)} returns them.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @param dist neighborhood radius
+	 * @param mode {@link sim.field.grid.Grid2D#TOROIDAL} or {@link sim.field.grid.Grid2D#BOUNDED}
+	 * @param includeOrigin include agents at (x, y)?
+	 * @param result bag to fill
+	 * @return <i>result</i>
+	 */
+	public Bag getMooreNeighbors(int x, int y, int dist, int mode, boolean includeOrigin, Bag result);
+
+	/**
+	 * Get the index of empty cells, which the space keeps up to date as agents are added, moved, and removed.
+	 * @return free-cell index, or null if this space doesn't keep one
+	 */
+	public FreeCellIndex acquireFreeCells();
+
+}
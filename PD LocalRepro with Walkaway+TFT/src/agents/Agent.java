@@ -4,57 +4,159 @@ import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
 import sim.field.grid.Grid2D;
-import sim.field.grid.SparseGrid2D;
 import sim.util.Bag;
 import simulation.PDWASim;
+import space.AgentSpace;
 
 public class Agent implements Steppable {
 	
-	private boolean played;
+	private long playedStep;			// time step in which this agent last played; it has played in this step if this is the current step
+	private long bornStep = -1;			// time step in which a pooled agent was brought back; it starts stepping in the next one
 	private boolean moved;
 	private int x, y;
 	private int dirx, diry;
 	private double resources;
 	private int id;
-	private GameMemory lastGame;
+	private long history;					// recent games, packed (see GameHistory)
 	
 	private Strategy strategy;
+	private int[] table;					// compiled strategy
+	private int memory;						// number of games the strategy looks back at
 	private Stoppable stopper;
+	int registrySlot = -1;					// position in the simulation's AgentRegistry
+	int sleepSlot = -1;						// position in the simulation's SleepTracker, or -1 if awake
+	long sleptStep, skippedStep;			// step in which this agent was parked, and the last step it skipped since
+	VerletLists.Cache verlet;				// cached partner candidates, if the simulation keeps them
+	long verletMark;						// stamp for dropping duplicates from a cached list
+	int flightSlot = -1;					// position in its landing step's list in the simulation's FlightTracker, or -1 if not flying
+	long flightStart;						// step in which this agent took off
+	int flightLength;						// steps the flight lasts
+	boolean flightTurns;					// does the flight end with a random change of direction?
+	boolean turnDue;						// change direction the next time we move, without a random draw
 	
 	private PDWASim sim;
-	private SparseGrid2D space;
+	private AgentSpace space;
 	
 	private static int nextId = 0;
 	
 	public Agent(PDWASim sim, int x, int y, Strategy strategy) {
 		this.sim = sim;
-		space = sim.acquireSpace();
+		space = sim.acquireAgentSpace();
+		init(x, y, strategy);
+	}
+	
+	/**
+	 * Bring a dormant agent from the {@link AgentPool} back as a new agent, exactly as if it had just been constructed (including a new
+	 * ID). It keeps its place on the schedule but doesn't step until the next time step, like a newly scheduled agent.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @param strategy game strategy
+	 */
+	public void rebirth(int x, int y, Strategy strategy) {
+		init(x, y, strategy);
+		bornStep = sim.schedule.getSteps();
+		return;
+	}
+	
+	private void init(int x, int y, Strategy strategy) {
 		this.x = x;
 		this.y = y;
 		randomizeMovement();
 		this.strategy = strategy;
+		table = StrategyTable.forStrategy(strategy);
+		memory = strategy.getMemory();
 		resources = sim.random.nextInt(40) + 10;	// uniformly distributed in [10, 49]
-		played = false;
+		playedStep = -1;
 		moved = false;
-		lastGame = new GameMemory(Action.NOTHING, Action.NOTHING);
+		turnDue = false;
+		history = GameHistory.EMPTY;
 		id = nextId++;
+		return;
 	}
 	
 	@Override
 	public void step(SimState state) {
-		if (played) {					// if we have been played as a partner already in this move, we're done
+		if (!isAlive()) {				// dormant in the pool
+			if (sim.acquireStrategyCounts().total() == 0) {
+				stopper.stop();
+			}
+			return;
+		}
+		long now = sim.schedule.getSteps();
+		if (sleepSlot >= 0 && sim.acquireSleepers().skip(this, now)) {	// parked with nobody near
+			return;
+		}
+		if (playedStep == now || bornStep == now) {		// if we have been played as a partner already in this move, we're done
 			return;
 		}
 		
 		
-		Bag neighbors = space.getMooreNeighbors(x, y, sim.getPlayRadius(), Grid2D.TOROIDAL, true);
-		Agent partner = pickPartner(neighbors);
+		Agent partner;
+		boolean alone;		// nobody but ourselves within the play radius?
+		if (sim.acquirePartnerSampler() != null) {
+			partner = sim.acquirePartnerSampler().pick(this);
+			alone = sim.acquirePartnerSampler().wasAlone();
+		} else {
+			Bag neighbors;
+			if (sim.acquireVerletLists() != null) {
+				neighbors = sim.acquireVerletLists().candidates(this, sim.acquireNeighborBuffer());
+			} else {
+				neighbors = space.getMooreNeighbors(x, y, sim.getPlayRadius(), Grid2D.TOROIDAL, true, sim.acquireNeighborBuffer());
+			}
+			alone = neighbors.numObjs <= 1;
+			partner = pickPartner(neighbors, now);
+		}
 		if (playAndDecideMove(partner)) {
 			moved = true;
 			moveLogic();
 			
 		}
 		updateLifeEvents();
+		if (alone && sim.acquireSleepers() != null && !StrategyTable.movesAlone(strategy) && resources > 0 && resources < 100 && isAlive()) {
+			sim.acquireSleepers().park(this, now);		// nothing will change for us until someone comes near
+		}
+		if (alone && sim.acquireFlights() != null && StrategyTable.movesAlone(strategy) && resources > 0 && resources < 100 && isAlive()) {
+			sim.acquireFlights().launch(this, now);		// we'll go straight on until someone comes near or we turn
+		}
+		return;
+	}
+	
+	/**
+	 * Add the empty rounds of the steps skipped while parked to the history.
+	 * @param rounds number of steps skipped
+	 */
+	void catchUp(long rounds) {
+		history = GameHistory.idle(history, rounds);
+		return;
+	}
+	
+	/**
+	 * Come down from a flight: move to where the flight has got to and add its empty rounds to the history.
+	 * @param nx x-coordinate reached
+	 * @param ny y-coordinate reached
+	 * @param rounds number of steps flown
+	 * @param turn change direction the next time we move
+	 */
+	void land(int nx, int ny, long rounds, boolean turn) {
+		if (nx != x || ny != y) {
+			space.move(this, x, y, nx, ny);
+			if (strategy.isCooperator() && sim.acquireClusters() != null) {
+				sim.acquireClusters().move(x, y, nx, ny);
+			}
+			if (sim.acquireOccupiedBlocks() != null) {
+				sim.acquireOccupiedBlocks().move(x, y, nx, ny);
+			}
+			x = nx;
+			y = ny;
+			if (sim.acquireVerletLists() != null) {
+				sim.acquireVerletLists().born(this);		// more than one cell away, so lists are redone as for a birth
+			}
+			if (sim.acquireSleepers() != null) {
+				sim.acquireSleepers().arrived(x, y);
+			}
+		}
+		catchUp(rounds);
+		turnDue = turn;
 		return;
 	}
 	
@@ -71,7 +173,8 @@ public class Agent implements Steppable {
 	 * Everything necessary for movement. Includes directional adjustments and the move method itself.
 	 */
 	private void moveLogic() {
-		if (sim.random.nextBoolean(sim.getProbRandomMove())) {
+		if (turnDue || sim.acquireRandomMoveEvents().next(sim.getProbRandomMove())) {
+			turnDue = false;
 			randomizeMovement();
 		}
 		move();
@@ -84,24 +187,42 @@ public class Agent implements Steppable {
 	private void move() {
 		int tempx = space.stx(x + dirx);
 		int tempy = space.sty(y + diry);
-		if (space.getObjectsAtLocation(tempx, tempy) != null) {
+		if (!space.isEmpty(tempx, tempy)) {
 			dirx = -dirx;
 			diry = -diry;
-			tempx = x;
-			tempy = y;
+			return;
+		}
+		if (sleepSlot >= 0) {
+			sim.acquireSleepers().wake(this);			// clears the watch counts around the cell we are leaving
+		}
+		space.move(this, x, y, tempx, tempy);
+		if (strategy.isCooperator() && sim.acquireClusters() != null) {
+			sim.acquireClusters().move(x, y, tempx, tempy);
+		}
+		if (sim.acquireVerletLists() != null) {
+			sim.acquireVerletLists().moved(this, x, y, tempx, tempy);
+		}
+		if (sim.acquireOccupiedBlocks() != null) {
+			sim.acquireOccupiedBlocks().move(x, y, tempx, tempy);
 		}
 		x = tempx;
 		y = tempy;
-		space.setObjectLocation(this, x, y);
+		if (sim.acquireSleepers() != null) {
+			sim.acquireSleepers().arrived(x, y);
+		}
+		if (sim.acquireFlights() != null) {
+			sim.acquireFlights().arrived(x, y);
+		}
 		return;
 	}
 	
 	/**
 	 * Pick a random neighbor to play with. Only returns an agent that has not yet played this round. Will return null if there are no available agents.
 	 * @param candidates agents to pick from; can include self (but self will not be returned)
+	 * @param now current time step
 	 * @return a random, unplayed agent from among the candidates, or null if there aren't any
 	 */
-	private Agent pickPartner(Bag candidates) {
+	private Agent pickPartner(Bag candidates, long now) {
 		if (candidates == null || candidates.isEmpty()) {			// no neighbors, no partner to play with
 			return null;
 		}
@@ -113,7 +234,7 @@ public class Agent implements Steppable {
 				continue;
 			}
 			Agent a = (Agent)o;
-			if (!a.played) {
+			if (a.playedStep != now) {
 				return a;
 			}
 		}
@@ -123,7 +244,7 @@ public class Agent implements Steppable {
 				continue;
 			}
 			Agent a = (Agent)o;
-			if (!a.played) {
+			if (a.playedStep != now) {
 				return a;
 			}
 		}
@@ -133,253 +254,109 @@ public class Agent implements Steppable {
 	/**
 	 * Play the dictator game with a partner, returning true if the agent should move due to strategy or because no partner was found. The partner agent will automatically be played and moved and its played flag will
 	 * be set so it can not be played again in this step. If null is passed, this will be interpreted as indicating no partners were available, and the appropriate value for movement based on the agent's strategy will
-	 * be returned.
+	 * be returned. Both agents' choices come from their compiled {@link StrategyTable}, so nothing is allocated here.
 	 * @param partner agent to play with or null if none are available
 	 * @return true if this agent should move
 	 */
 	private boolean playAndDecideMove(Agent partner) {
 		if (partner == null) {
-			lastGame = new GameMemory(Action.NOTHING, Action.NOTHING);	// nothing happens if there are no partners
-			switch (strategy) {
-				case NAIVE_C:
-				case NAIVE_D:
-				case PAVLOV_MOBILE:
-				case TFT_MOBILE:
-				case WALKAWAY_C:
-				case WALKAWAY_D:
-				case DONE:
-				case REALISTIC_TFT:
-					return true;			// all of the preceding strategies move if no partner is found
-				case PAVLOV_STATIONARY:
-				case TFT_STATIONARY:
-					return false;			// these strategies do nothing if no partner is found
-			}
-			throw new RuntimeException("This agent is using a strategy that has not been implemented: " + strategy);
+			history = GameHistory.push(history, StrategyTable.NOTHING, StrategyTable.NOTHING);	// nothing happens if there are no partners
+			return StrategyTable.movesAlone(strategy);
+		}
+		if (partner.sleepSlot >= 0) {
+			sim.acquireSleepers().wake(partner);		// its history must be caught up before it chooses
 		}
-		StrategySet mySet = selectAction(partner);
-		StrategySet partnerSet = partner.selectAction(this);
-		Action sAct = mySet.action;
-		Action pAct = partnerSet.action;
+		int mine = selectAction();
+		int theirs = partner.selectAction();
+		int sAct = StrategyTable.action(mine);
+		int pAct = StrategyTable.action(theirs);
 		playPD(partner, sAct, pAct);
 		// the partner will need to move now if they are going to move at all, since they are now marked played (and might have already taken their step anyway)
-		if (partnerSet.moveCooperate && sAct.equals(Action.COOPERATE) || partnerSet.moveDefect && sAct.equals(Action.DEFECT) || partnerSet.moveNothing && sAct.equals(Action.NOTHING)) {
+		if (StrategyTable.moves(theirs, sAct)) {
 			partner.moveLogic();
 		}
 		// now we return our own decision
-		return mySet.moveCooperate && pAct.equals(Action.COOPERATE) || mySet.moveDefect && pAct.equals(Action.DEFECT) || mySet.moveNothing && pAct.equals(Action.NOTHING);
+		return StrategyTable.moves(mine, pAct);
 	}
 	
 	/**
-	 * Returns this agent's action set (including game strategy and movement options given partner's action) based on this agent's strategy and history.
-	 * @param partner the partner this agent will be playing with
-	 * @return strategy set for this move
+	 * Returns this agent's packed action and movement options (see {@link StrategyTable}) based on this agent's strategy and the last few
+	 * games in its history.
+	 * @return table entry for this move
 	 */
-	private StrategySet selectAction(Agent partner) {	// perhaps partner will be useful for future strategies
-		switch (strategy) {
-			case NAIVE_C:
-				return playNaiveC();
-			case NAIVE_D:
-				return playNaiveD();
-			case PAVLOV_MOBILE:
-				return playPavlovMobile();
-			case PAVLOV_STATIONARY:
-				return playPavlovStationary();
-			case TFT_MOBILE:
-				return playTFTMobile();
-			case TFT_STATIONARY:
-				return playTFTStationary();
-			case WALKAWAY_C:
-				return playWalkawayC();
-			case WALKAWAY_D:
-				return playWalkawayD();
-			case REALISTIC_TFT:
-				return playRealisticTFT();
-			case DONE:
-				return playDone();
-		}
-		throw new RuntimeException("This agent is using a strategy that has not been implemented: " + strategy);
-	}
-	
-	/**
-	 * Return strategy set for naive cooperator.
-	 * @return strategy set
-	 */
-	private StrategySet playNaiveC() {
-		return new StrategySet(Action.COOPERATE, false, false, true);
-	}
-	
-	/**
-	 * Return strategy set for naive defector.
-	 * @return strategy set
-	 */
-	private StrategySet playNaiveD() {
-		return new StrategySet(Action.DEFECT, false, false, true);
-	}
-	
-	/**
-	 * Return strategy set for mobile PAVLOV.
-	 * @return strategy set
-	 */
-	private StrategySet playPavlovMobile() {
-		if (lastGame.self.equals(Action.COOPERATE) && lastGame.other.equals(Action.COOPERATE)) {
-			return new StrategySet(Action.COOPERATE, false, false, true);
-		}
-		if (lastGame.self.equals(Action.COOPERATE) && lastGame.other.equals(Action.DEFECT)) {
-			return new StrategySet(Action.DEFECT, false, false, true);
-		}
-		if (lastGame.self.equals(Action.DEFECT) && lastGame.other.equals(Action.COOPERATE)) {
-			return new StrategySet(Action.DEFECT, false, false, true);
-		}
-		if (lastGame.self.equals(Action.DEFECT) && lastGame.other.equals(Action.DEFECT)) {
-			return new StrategySet(Action.COOPERATE, false, false, true);
-		}		// else there must be a NOTHING in one of the spots, which implies ... 
-		return new StrategySet(Action.COOPERATE, false, false, true);
-	}
-	
-	/**
-	 * Return strategy set for stationary PAVLOV.
-	 * @return strategy set
-	 */
-	private StrategySet playPavlovStationary() {
-		if (lastGame.self.equals(Action.COOPERATE) && lastGame.other.equals(Action.COOPERATE)) {
-			return new StrategySet(Action.COOPERATE, false, false, false);
-		}
-		if (lastGame.self.equals(Action.COOPERATE) && lastGame.other.equals(Action.DEFECT)) {
-			return new StrategySet(Action.DEFECT, false, true, false);
-		}
-		if (lastGame.self.equals(Action.DEFECT) && lastGame.other.equals(Action.COOPERATE)) {
-			return new StrategySet(Action.DEFECT, false, false, false);
-		}
-		if (lastGame.self.equals(Action.DEFECT) && lastGame.other.equals(Action.DEFECT)) {
-			return new StrategySet(Action.COOPERATE, false, false, false);
-		}		// else there must be a NOTHING in one of the spots, which implies ... 
-		return new StrategySet(Action.COOPERATE, false, false, false);
-	}
-	//StrategySet(Action action, boolean moveCooperate, boolean moveDefect, boolean moveNothing)
-	
-	private StrategySet playDone()
-	{
-		if (lastGame.self.equals(Action.COOPERATE) && lastGame.other.equals(Action.COOPERATE)&&(!this.moved)) {
-			return new StrategySet(Action.COOPERATE, false, false, false);
-		}
-		if (lastGame.self.equals(Action.COOPERATE) && lastGame.other.equals(Action.DEFECT)&&(this.moved)) {
-			return new StrategySet(Action.DEFECT, true, true, true);
-		}
-		if (lastGame.self.equals(Action.DEFECT)) {
-			return new StrategySet(Action.DEFECT, true, true, true);
-		}
-				
-		return new StrategySet(Action.COOPERATE, false, false, false);
-	}
-	
-	
-	/**
-	 * Return strategy set for realistic tit-for-tat (also known as walkaway tit-for-tat).
-	 * @return strategy set
-	 */
-	private StrategySet playRealisticTFT() {
-		if (lastGame.other.equals(Action.DEFECT)) {						// we can just test for DEFECT ...
-			return new StrategySet(Action.DEFECT, false, true, true);
-		}
-		return new StrategySet(Action.COOPERATE, false, true, true);	// ... because this is the return value for both COOPERATE and NOTHING
-	}
-	
-	/**
-	 * Return strategy set for mobile tit-for-tat.
-	 * @return strategy set
-	 */
-	private StrategySet playTFTMobile() {
-		if (lastGame.other.equals(Action.COOPERATE)) {
-			return new StrategySet(Action.COOPERATE, false, false, true);
-		}
-		if (lastGame.other.equals(Action.DEFECT)) {
-			return new StrategySet(Action.DEFECT, false, false, true);
-		}	// then it must be NOTHING
-		return new StrategySet(Action.COOPERATE, false, false, true);
-	}
-	
-	/**
-	 * Return strategy set for stationary tit-for-tat.
-	 * @return strategy set
-	 */
-	private StrategySet playTFTStationary() {
-		if (lastGame.other.equals(Action.COOPERATE)) {
-			return new StrategySet(Action.COOPERATE, false, false, false);
-		}
-		if (lastGame.other.equals(Action.DEFECT)) {
-			return new StrategySet(Action.DEFECT, false, false, false);
-		}	// this it must be NOTHING
-		return new StrategySet(Action.COOPERATE, false, false, false);
-	}
-	
-	/**
-	 * Return strategy set for walk-away cooperator.
-	 * @return strategy set
-	 */
-	private StrategySet playWalkawayC() {
-		return new StrategySet(Action.COOPERATE, false, true, true);
-	}
-	
-	/**
-	 * Return strategy set for walk-away defector.
-	 * @return strategy set
-	 */
-	private StrategySet playWalkawayD() {
-		return new StrategySet(Action.DEFECT, false, true, true);
+	private int selectAction() {
+		return table[StrategyTable.index(history, memory, moved)];
 	}
 	
 	/**
 	 * Play the prisoner's dilemma game with the given partner using the strategies provided. Updates resources for both agents, sets played flag, and stores memory of last game play. This also introduces the specified
 	 * error rate in both players' actions.
 	 * @param partner agent to play with
-	 * @param myAction this agent's action
-	 * @param partnerAction partner's action
+	 * @param myAction this agent's action code
+	 * @param partnerAction partner's action code
 	 */
-	private void playPD(Agent partner, Action myAction, Action partnerAction) {
+	private void playPD(Agent partner, int myAction, int partnerAction) {
 		myAction = introduceError(myAction);
 		partnerAction = introduceError(partnerAction);
-		if (myAction.equals(Action.COOPERATE) && partnerAction.equals(Action.COOPERATE)) {
+		if (myAction == StrategyTable.COOPERATE && partnerAction == StrategyTable.COOPERATE) {
 			resources += 3;
 			partner.resources += 3;
-		} else if (myAction.equals(Action.COOPERATE) && partnerAction.equals(Action.DEFECT)) {
+		} else if (myAction == StrategyTable.COOPERATE && partnerAction == StrategyTable.DEFECT) {
 			resources -= 1;
 			partner.resources += 5;
-		} else if (myAction.equals(Action.DEFECT) && partnerAction.equals(Action.COOPERATE)) {
+		} else if (myAction == StrategyTable.DEFECT && partnerAction == StrategyTable.COOPERATE) {
 			resources += 5;
 			partner.resources -= 1;
 		}		// must be DEFECT/DEFECT, which means no change
-		played = true;
-		partner.played = true;
-		lastGame = new GameMemory(myAction, partnerAction);
-		partner.lastGame = new GameMemory(partnerAction, myAction);
+		if (sim.acquireInteractions() != null) {
+			sim.acquireInteractions().record(0, strategy, partner.strategy, myAction, partnerAction);
+		}
+		playedStep = sim.schedule.getSteps();
+		if (sim.acquireEdgeLog() != null) {
+			sim.acquireEdgeLog().record(playedStep, id, partner.id, myAction, partnerAction);
+		}
+		partner.playedStep = playedStep;
+		history = GameHistory.push(history, myAction, partnerAction);
+		partner.history = GameHistory.push(partner.history, partnerAction, myAction);
 		return;
 	}
 	
 	/**
 	 * Return the same action, usually, but flips it at the simulation's specified error rate. The action NOTHING is always unchanged.
-	 * @param a specified action
-	 * @return given action with simulated error in execution
-	 */
-	private Action introduceError(Action a) {
-		if (sim.random.nextBoolean(sim.getErrorRate())) {
-			if (a.equals(Action.COOPERATE)) {		// we only flip C and D -- NOTHING gets left alone
-				a = Action.DEFECT;
+	 * Errors are rare, so they come from the simulation's skip-ahead sampler rather than a random draw per action.
+	 * @param a specified action code
+	 * @return given action code with simulated error in execution
+	 */
+	private int introduceError(int a) {
+		if (sim.acquireErrorEvents().next(sim.getErrorRate())) {
+			if (a == StrategyTable.COOPERATE) {		// we only flip C and D -- NOTHING gets left alone
+				a = StrategyTable.DEFECT;
 			}
-			if (a.equals(Action.DEFECT)) {
-				a = Action.COOPERATE;
+			if (a == StrategyTable.DEFECT) {
+				a = StrategyTable.COOPERATE;
 			}
 		}
 		return a;
 	}
 	
 	/**
-	 * Based on the current resources, implements reproduction and death.
+	 * Based on the current resources, implements reproduction and death, or queues them until the end of the step if the simulation defers
+	 * life events.
 	 */
 	private void updateLifeEvents() {
+		LifeEventBuffer deferred = sim.acquireLifeEvents();
 		if (resources <= 0) {
-			remove();
+			if (deferred != null) {
+				deferred.die(this);
+			} else {
+				remove();
+			}
 		} else if (resources >= 100) {
-			reproduce();
+			if (deferred != null) {
+				deferred.reproduce(this);
+			} else {
+				reproduce();
+			}
 		}
 		return;
 	}
@@ -387,12 +364,12 @@ public class Agent implements Steppable {
 	/**
 	 * Reproduce a new agent if there is space in the simulation (that is, the population capacity has not been reached). Resources are divided evenly between the parent and the offspring.
 	 */
-	private void reproduce()
+	void reproduce()
 	{
 		Agent o=null;
 		
 		
-			if (space.allObjects.numObjs >= sim.acquirePopulationCap()) 
+			if (space.numObjects() >= sim.acquirePopulationCap()) 
 			{
 				if(!sim.isEnforceCapAfterReproduction())
 				{
@@ -409,10 +386,8 @@ public class Agent implements Steppable {
 					{
 						o = sim.makeAgent(strategy);
 					}
-					Bag candidates = space.getAllObjects();
-					int size = candidates.numObjs;
-					int rand = sim.random.nextInt(size);
-					Agent a =(Agent)(candidates.objs[rand]);
+					recordBirth(o);		// before the cull, which may pick the offspring
+					Agent a = sim.acquireRegistry().random(sim.random);
 					if(a!=null)
 					{
 						a.remove();
@@ -429,6 +404,7 @@ public class Agent implements Steppable {
 				{
 					o = sim.makeAgent(strategy);
 				}
+				recordBirth(o);
 			}
 				
 		
@@ -445,15 +421,56 @@ public class Agent implements Steppable {
 
 	}
 	
+	/**
+	 * Record an offspring of this agent in the lineage, if one is kept.
+	 * @param o offspring, or null if none could be placed
+	 */
+	private void recordBirth(Agent o) {
+		if (o != null && sim.acquireLineage() != null) {
+			sim.acquireLineage().birth(o.id, id, sim.schedule.getSteps());
+		}
+		return;
+	}
+	
 	/**
 	 * Remove this agent from the simulation; simulated death.
 	 */
-	private void remove() {
-		space.remove(this);
-		stopper.stop();
+	void remove() {
+		if (sim.acquireSleepers() != null) {
+			sim.acquireSleepers().wake(this);
+		}
+		if (sim.acquireFlights() != null) {
+			sim.acquireFlights().land(this);
+		}
+		if (sim.acquireVerletLists() != null) {
+			sim.acquireVerletLists().died(this);
+		}
+		space.remove(this, x, y);
+		if (sim.acquireOccupiedBlocks() != null) {
+			sim.acquireOccupiedBlocks().vacate(x, y);
+		}
+		sim.acquireRegistry().remove(this);
+		sim.acquireStrategyCounts().remove(strategy);
+		if (strategy.isCooperator() && sim.acquireClusters() != null) {
+			sim.acquireClusters().vacate(x, y);
+		}
+		if (sim.acquirePool() == null || !sim.acquirePool().offer(this)) {
+			stopper.stop();
+		}
+		if (sim.acquireLineage() != null) {
+			sim.acquireLineage().death(id, sim.schedule.getSteps());
+		}
 		return;
 	}
 	
+	/**
+	 * Is this agent still in the simulation?
+	 * @return false once it has died
+	 */
+	boolean isAlive() {
+		return registrySlot >= 0;
+	}
+	
 	/**
 	 * Attach the stopper that allows this agent to be removed from the schedule.
 	 * @param stopper stoppable object returned by schedule when adding a repeating object
@@ -464,19 +481,19 @@ public class Agent implements Steppable {
 	}
 	
 	/**
-	 * Reset this agent's played flag so it can play on the next time step; called by observer at the end of every step.
+	 * Get the stopper that removes this agent from the schedule.
+	 * @return stopper, or null if the agent hasn't been scheduled
 	 */
-	public void reset() {
-		played = false;
-		return;
+	public Stoppable acquireStopper() {
+		return stopper;
 	}
-
+	
 	/**
 	 * Has this agent played (or played with another agent) in the current time step?
 	 * @return true if agent has played this time step
 	 */
 	public boolean isPlayed() {
-		return played;
+		return playedStep == sim.schedule.getSteps();
 	}
 
 	/**
@@ -535,12 +552,25 @@ public class Agent implements Steppable {
 		return strategy;
 	}
 	
+	/**
+	 * Get a description of this agent's last game. This is built on request (for inspectors and output), not stored.
+	 * @return memory of the last game
+	 */
 	public GameMemory getMemory() {
-		return lastGame;
+		Action[] actions = Action.values();
+		return new GameMemory(actions[GameHistory.self(history, 0)], actions[GameHistory.other(history, 0)]);
+	}
+	
+	/**
+	 * Get this agent's packed game history; see {@link GameHistory} for reading it.
+	 * @return packed history
+	 */
+	public long acquireHistory() {
+		return history;
 	}
 	
 	public String toString() {
-		return "PDWA Agent at (" + x + ", " + y + "): ID=" + id + "; strategy=" + strategy + "; resources=" + resources + "; played=" + played + "; dirx=" + dirx + "; diry=" + diry + ".";
+		return "PDWA Agent at (" + x + ", " + y + "): ID=" + id + "; strategy=" + strategy + "; resources=" + resources + "; played=" + isPlayed() + "; dirx=" + dirx + "; diry=" + diry + ".";
 	}
 	
 	public enum Action {
@@ -549,25 +579,6 @@ public class Agent implements Steppable {
 		NOTHING
 	}
 	
-	/**
-	 * Complete description of an agent's strategy at a given time step. Includes the action (cooperate or defect), and whether or not the agent will move based on its partners actions in the current game.
-	 * @author Matt L. Miller
-	 */
-	public class StrategySet {
-		Action action;
-		boolean moveCooperate;
-		boolean moveDefect;
-		boolean moveNothing;
-		
-		
-		public StrategySet(Action action, boolean moveCooperate, boolean moveDefect, boolean moveNothing) {
-			this.action = action;
-			this.moveCooperate = moveCooperate;
-			this.moveDefect = moveDefect;
-			this.moveNothing = moveNothing;
-		}
-	}
-	
 	/**
 	 * A memory package of a single game play. Includes the agent's own action and its partner's action.
 	 * @author Matt L. Miller
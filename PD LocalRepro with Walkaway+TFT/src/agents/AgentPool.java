@@ -0,0 +1,54 @@
+package agents;
+
+import sim.util.Bag;
+
+/**
+ * Agents that have left the simulation, kept for reuse. An agent that leaves while the pool has room stays on the schedule, dormant (its
+ * step does nothing), and the next new agent brings it back with fresh state instead of allocating a new agent and a new schedule entry.
+ * When every agent that leaves is soon followed by a new one, the pool stays small and a run allocates nothing per new agent.
+ *
+ * <p>Dormant agents are still stepped and shuffled by the schedule, so a run with a pool draws different random numbers than one
+ * without; the capacity bounds how many can pile up while the population shrinks.
+ */
+public final class AgentPool {
+
+	private final Bag dormant = new Bag();
+	private final int capacity;
+
+	/**
+	 * @param capacity most dormant agents to keep; agents leaving beyond this are taken off the schedule as usual
+	 */
+	public AgentPool(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Offer an agent that has left the simulation to the pool.
+	 * @param a agent that has just been removed from the space and the registry
+	 * @return true if the pool kept it, so it should stay on the schedule
+	 */
+	boolean offer(Agent a) {
+		if (dormant.numObjs >= capacity) {
+			return false;
+		}
+		dormant.add(a);
+		return true;
+	}
+
+	/**
+	 * Take a dormant agent to reuse.
+	 * @return an agent that is still on the schedule, or null if the pool is empty
+	 */
+	public Agent take() {
+		return (Agent)dormant.pop();
+	}
+
+	/**
+	 * Number of dormant agents.
+	 * @return agents waiting for reuse
+	 */
+	public int size() {
+		return dormant.numObjs;
+	}
+
+}
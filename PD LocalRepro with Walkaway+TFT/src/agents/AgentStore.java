@@ -0,0 +1,269 @@
+package agents;
+
+import java.util.Arrays;
+
+import space.FreeCellIndex;
+
+/**
+ * Structure-of-arrays storage for PD agents, used by {@link ArrayEngine}. Each agent is a slot; its state lives at that index in a set of
+ * parallel primitive arrays, a dense grid maps every cell to the slot standing on it, and a {@link FreeCellIndex} tracks the empty cells. An agent costs a few dozen bytes and no object
+ * headers or pointers, so very large populations fit in a normal heap and iterating over them walks memory in order.
+ *
+ * <p>Killing an agent only marks its slot {@link #DEAD} and clears its cell, so slot numbers stay stable during a step; {@link #compact()}
+ * squeezes the dead slots out afterwards. New agents are always added after the existing slots.
+ */
+public final class AgentStore {
+
+	public static final byte DEAD = -1;			// strategy code of a slot whose agent has died
+	public static final int EMPTY = -1;			// grid value of an unoccupied cell
+	
+	private static final Strategy[] STRATEGIES = Strategy.values();
+
+	int[] id;									// unique within this store, in order of birth
+	int[] x, y;
+	byte[] dirx, diry;
+	double[] resources;
+	byte[] strategy;							// Strategy ordinal, or DEAD
+	long[] history;								// see GameHistory
+	int[] played;								// engine step in which this agent last played
+	boolean[] moved;
+
+	final int[] grid;							// cell (x + y * width) -> slot, or EMPTY
+	final FreeCellIndex free;
+	final StrategyCounts counts;				// shared with the simulation
+	final ClusterTracker clusters;				// shared with the simulation; null if clusters aren't tracked
+	final int width, height;
+	int size;									// slots in use, including dead ones not yet compacted
+	int live;									// agents still alive
+	private int nextId = 0;
+
+	public AgentStore(int width, int height, int capacity, StrategyCounts counts, ClusterTracker clusters) {
+		this.width = width;
+		this.height = height;
+		this.counts = counts;
+		this.clusters = clusters;
+		grid = new int[width * height];
+		Arrays.fill(grid, EMPTY);
+		free = new FreeCellIndex(width, height);
+		allocate(Math.max(capacity, 16));
+	}
+
+	/**
+	 * Add a new agent to the next free slot and put it on the grid. The cell must be empty.
+	 * @return the new agent's slot
+	 */
+	int add(int ax, int ay, Strategy strat, int adirx, int adiry, double res) {
+		if (size == x.length) {
+			allocate(size * 2);
+		}
+		int slot = size++;
+		id[slot] = nextId++;
+		x[slot] = ax;
+		y[slot] = ay;
+		dirx[slot] = (byte)adirx;
+		diry[slot] = (byte)adiry;
+		resources[slot] = res;
+		strategy[slot] = (byte)strat.ordinal();
+		history[slot] = GameHistory.EMPTY;
+		played[slot] = 0;
+		moved[slot] = false;
+		grid[cell(ax, ay)] = slot;
+		free.occupy(ax, ay);
+		counts.add(strat);
+		if (clusters != null && strat.isCooperator()) {
+			clusters.occupy(ax, ay);
+		}
+		live++;
+		return slot;
+	}
+
+	/**
+	 * Mark an agent dead and take it off the grid. Its slot is reclaimed by the next {@link #compact()}.
+	 * @param slot agent to kill
+	 */
+	void kill(int slot) {
+		if (strategy[slot] == DEAD) {
+			return;
+		}
+		grid[cell(x[slot], y[slot])] = EMPTY;
+		free.release(x[slot], y[slot]);
+		counts.remove(STRATEGIES[strategy[slot]]);
+		if (clusters != null && STRATEGIES[strategy[slot]].isCooperator()) {
+			clusters.vacate(x[slot], y[slot]);
+		}
+		strategy[slot] = DEAD;
+		live--;
+		return;
+	}
+
+	/**
+	 * Move an agent to an empty cell.
+	 */
+	void moveTo(int slot, int nx, int ny) {
+		if (clusters != null && STRATEGIES[strategy[slot]].isCooperator()) {
+			clusters.move(x[slot], y[slot], nx, ny);
+		}
+		grid[cell(x[slot], y[slot])] = EMPTY;
+		free.release(x[slot], y[slot]);
+		x[slot] = nx;
+		y[slot] = ny;
+		grid[cell(nx, ny)] = slot;
+		free.occupy(nx, ny);
+		return;
+	}
+
+	/**
+	 * Move an agent to an empty cell, touching only the two cells involved in the grid, the free-cell index, and the cluster tracker, so
+	 * threads moving agents in parts of the grid that don't overlap can do so at the same time. Leaves the free cells in a different order
+	 * than {@link #moveTo(int, int, int)}.
+	 */
+	void relocate(int slot, int nx, int ny) {
+		int ox = x[slot];
+		int oy = y[slot];
+		if (clusters != null && STRATEGIES[strategy[slot]].isCooperator()) {
+			clusters.relocate(ox, oy, nx, ny);
+		}
+		grid[cell(ox, oy)] = EMPTY;
+		free.move(ox, oy, nx, ny);
+		x[slot] = nx;
+		y[slot] = ny;
+		grid[cell(nx, ny)] = slot;
+		return;
+	}
+
+	/**
+	 * Remove dead slots by moving the last live agent into each hole, keeping the grid in step. Slot numbers change, so this must only
+	 * be called between steps.
+	 */
+	void compact() {
+		int i = 0;
+		while (i < size) {
+			if (strategy[i] != DEAD) {
+				i++;
+				continue;
+			}
+			int last = --size;
+			if (last != i) {
+				copy(last, i);
+				if (strategy[i] != DEAD) {
+					grid[cell(x[i], y[i])] = i;
+				}
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Grid cell index for a location.
+	 */
+	int cell(int cx, int cy) {
+		return cx + cy * width;
+	}
+
+	/**
+	 * Get the slot standing on a location.
+	 * @param cx x-coordinate
+	 * @param cy y-coordinate
+	 * @return slot or {@link #EMPTY}
+	 */
+	public int slotAt(int cx, int cy) {
+		return grid[cell(cx, cy)];
+	}
+
+	/**
+	 * Number of slots in use, which may include dead agents during a step.
+	 * @return slots in use
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of living agents.
+	 * @return live agents
+	 */
+	public int live() {
+		return live;
+	}
+
+	/**
+	 * Is the agent in this slot alive?
+	 * @param slot agent slot
+	 * @return true if alive
+	 */
+	public boolean isAlive(int slot) {
+		return strategy[slot] != DEAD;
+	}
+
+	/**
+	 * Strategy of the agent in this slot, which must be alive.
+	 * @param slot agent slot
+	 * @return game strategy
+	 */
+	public Strategy getStrategy(int slot) {
+		return STRATEGIES[strategy[slot]];
+	}
+
+	/**
+	 * Unique ID number of the agent in this slot. Unlike the slot, it stays with the agent for life.
+	 * @param slot agent slot
+	 * @return ID number
+	 */
+	public int getId(int slot) {
+		return id[slot];
+	}
+
+	public int getX(int slot) {
+		return x[slot];
+	}
+
+	public int getY(int slot) {
+		return y[slot];
+	}
+
+	public double getResources(int slot) {
+		return resources[slot];
+	}
+
+	private void copy(int from, int to) {
+		id[to] = id[from];
+		x[to] = x[from];
+		y[to] = y[from];
+		dirx[to] = dirx[from];
+		diry[to] = diry[from];
+		resources[to] = resources[from];
+		strategy[to] = strategy[from];
+		history[to] = history[from];
+		played[to] = played[from];
+		moved[to] = moved[from];
+		return;
+	}
+
+	private void allocate(int capacity) {
+		if (x == null) {
+			id = new int[capacity];
+			x = new int[capacity];
+			y = new int[capacity];
+			dirx = new byte[capacity];
+			diry = new byte[capacity];
+			resources = new double[capacity];
+			strategy = new byte[capacity];
+			history = new long[capacity];
+			played = new int[capacity];
+			moved = new boolean[capacity];
+			return;
+		}
+		id = Arrays.copyOf(id, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		dirx = Arrays.copyOf(dirx, capacity);
+		diry = Arrays.copyOf(diry, capacity);
+		resources = Arrays.copyOf(resources, capacity);
+		strategy = Arrays.copyOf(strategy, capacity);
+		history = Arrays.copyOf(history, capacity);
+		played = Arrays.copyOf(played, capacity);
+		moved = Arrays.copyOf(moved, capacity);
+		return;
+	}
+
+}
@@ -0,0 +1,669 @@
+package agents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import ec.util.MersenneTwisterFast;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import sim.engine.Stoppable;
+import sim.util.IntBag;
+import simulation.EdgeLog;
+import simulation.LineageRecorder;
+import simulation.PDWASim;
+import simulation.RareEventSampler;
+import space.CheckerboardTiles;
+import space.FreeCellIndex;
+import space.LocalSampler;
+
+/**
+ * Alternative PD engine that keeps every agent in an {@link AgentStore} instead of as an {@link Agent} object. The engine is scheduled
+ * once and, each step, steps every agent in a fresh random order. The rules are the same as {@link Agent}'s: pick a random unplayed
+ * neighbor, play the compiled strategies against each other, move, and reproduce or die. Everything operates on slot indices and reusable
+ * scratch arrays, so a step allocates nothing.
+ *
+ * <p>With more than one thread ({@link PDWASim#getThreads()}), the grid is cut into {@link CheckerboardTiles} at least 2 * (playRadius +
+ * 1) cells on a side. Everything an agent's turn touches (its partner, and both their moves) lies within playRadius + 1 of the agent, so
+ * turns in two tiles of the same colour never touch the same cell. Each step runs the four colours one after another, in random order,
+ * and the tiles of a colour in parallel on a fork-join pool. Every tile has its own random number generator and samplers and shuffles its
+ * own agents, so a run depends only on the seed and the tiling, never on the number of threads or which thread runs which tile. In this
+ * mode births and deaths are always deferred to the end of the step and applied in tile order, and games are counted in one
+ * {@link InteractionCounts} stripe per thread. While an edge log is being written, tiles run on the simulation's thread instead (with the
+ * same results), since the log takes one writer. If the grid is too small for 2x2 tiles, the engine steps serially.
+ *
+ * <p>Agents in this engine are not in the simulation's space, so there is nothing for the GUI to draw; it is meant for headless runs.
+ */
+public class ArrayEngine implements Steppable {
+
+	private static final int TILE_SIDE = 16;		// preferred tile side; enough tiles for load balancing without a generator per few cells
+	private static final byte NO_EVENT = 0;			// pending life events in tiled steps
+	private static final byte DIE = 1;
+	private static final byte REPRODUCE = 2;
+
+	private PDWASim sim;
+	private AgentStore store;
+	private Stoppable stopper;
+	private MersenneTwisterFast random;
+	private InteractionCounts interactions;		// null if games aren't counted
+	private EdgeLog edgeLog;					// null if games aren't logged
+	private LineageRecorder lineage;			// null if births and deaths aren't recorded
+
+	private final int[][] tables;			// compiled strategies, by ordinal
+	private final int[] memory;
+	private final boolean[] movesAlone;
+
+	private int[] order = new int[0];		// stepping order for the current step
+	private LocalSampler localSampler;		// placement near a parent
+	private int stamp = 0;					// current step, for played flags
+	private final boolean deferLifeEvents;	// queue births and deaths until every agent has stepped?
+	private IntBag deaths = new IntBag();	// slots queued to die this step
+	private IntBag births = new IntBag();	// slots queued to reproduce this step
+	private final Lane serial;				// the simulation's generator and samplers, for serial steps
+
+	private final int threads;
+	private ForkJoinPool workers;			// null unless tiles run in parallel
+	private Lane[] lanes;					// one per thread
+	private CheckerboardTiles tiles;		// null when stepping serially
+	private int tiledRadius;				// play radius the tiles were cut for
+	private MersenneTwisterFast[] tileRandom;
+	private RareEventSampler[] tileErrors;
+	private RareEventSampler[] tileMoves;
+	private int[] tileStart;				// tile -> first position of its agents in order; one extra entry marks the end
+	private int[] tileFill;					// scratch for bucketing agents by tile
+	private byte[] pending = new byte[0];	// slot -> life event decided this step, in tiled steps
+	private int[] phases = new int[CheckerboardTiles.COLOURS];
+	private List<List<Callable<Void>>> tasks;	// colour -> one task per thread
+
+	public ArrayEngine(PDWASim sim, int capacity) {
+		this.sim = sim;
+		random = sim.random;
+		interactions = sim.acquireInteractions();
+		edgeLog = sim.acquireEdgeLog();
+		lineage = sim.acquireLineage();
+		deferLifeEvents = sim.isDeferLifeEvents();
+		store = new AgentStore(sim.getGridWidth(), sim.getGridHeight(), capacity, sim.acquireStrategyCounts(), sim.acquireClusters());
+		localSampler = new LocalSampler(sim.getGridWidth(), sim.getGridHeight());
+		Strategy[] strategies = Strategy.values();
+		tables = new int[strategies.length][];
+		memory = new int[strategies.length];
+		movesAlone = new boolean[strategies.length];
+		for (Strategy s : strategies) {
+			tables[s.ordinal()] = StrategyTable.forStrategy(s);
+			memory[s.ordinal()] = s.getMemory();
+			movesAlone[s.ordinal()] = StrategyTable.movesAlone(s);
+		}
+		serial = new Lane(0, false);
+		serial.random = random;
+		serial.errorEvents = sim.acquireErrorEvents();
+		serial.randomMoveEvents = sim.acquireRandomMoveEvents();
+		threads = Math.max(sim.getThreads(), 1);
+		if (threads > 1) {
+			lanes = new Lane[threads];
+			for (int k = 0; k < threads; k++) {
+				lanes[k] = new Lane(interactions == null ? 0 : Math.min(k, interactions.getStripes() - 1), true);
+			}
+			if (edgeLog == null) {
+				workers = new ForkJoinPool(threads);
+			}
+			makeTiles(sim.getPlayRadius());
+		}
+	}
+
+	@Override
+	public void step(SimState state) {
+		stamp++;
+		if (threads > 1 && sim.getPlayRadius() != tiledRadius) {	// the radius was changed from the inspector; the tiles must grow with it
+			makeTiles(sim.getPlayRadius());
+		}
+		if (tiles != null) {
+			stepTiles();
+		} else {
+			stepSerial();
+		}
+		store.compact();
+		if (store.live == 0) {
+			stopper.stop();
+			shutdown();
+		}
+		return;
+	}
+
+	/**
+	 * Step every agent on this thread, in one random order.
+	 */
+	private void stepSerial() {
+		int n = store.size;
+		if (order.length < n) {
+			order = new int[store.x.length];
+		}
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {		// Fisher-Yates shuffle, so every agent goes in a new random order each step
+			int j = random.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		for (int i = 0; i < n; i++) {
+			stepAgent(serial, order[i]);
+		}
+		if (deferLifeEvents) {
+			applyLifeEvents();
+		}
+		return;
+	}
+
+	/**
+	 * Step every agent tile by tile, colour by colour, then apply the births and deaths decided along the way.
+	 */
+	private void stepTiles() {
+		int n = store.size;
+		if (order.length < n) {
+			order = new int[store.x.length];
+		}
+		if (pending.length < store.x.length) {
+			pending = new byte[store.x.length];
+		}
+		int nTiles = tiles.size();
+		Arrays.fill(tileStart, 0);				// counting sort by tile, so each tile's agents are one run of order
+		for (int a = 0; a < n; a++) {
+			if (store.strategy[a] != AgentStore.DEAD) {
+				tileStart[tiles.tileOf(store.x[a], store.y[a]) + 1]++;
+			}
+		}
+		for (int t = 0; t < nTiles; t++) {
+			tileStart[t + 1] += tileStart[t];
+		}
+		System.arraycopy(tileStart, 0, tileFill, 0, nTiles);
+		for (int a = 0; a < n; a++) {
+			if (store.strategy[a] != AgentStore.DEAD) {
+				order[tileFill[tiles.tileOf(store.x[a], store.y[a])]++] = a;
+			}
+		}
+		for (int i = phases.length - 1; i > 0; i--) {	// colours go in a random order so none is always first
+			int j = random.nextInt(i + 1);
+			int t = phases[i];
+			phases[i] = phases[j];
+			phases[j] = t;
+		}
+		for (int colour : phases) {
+			stepColour(colour);
+		}
+		applyPending(tileStart[nTiles]);
+		return;
+	}
+
+	/**
+	 * Step every tile of one colour, on the pool if there is one. Returns when they are all done.
+	 */
+	private void stepColour(int colour) {
+		if (workers == null) {
+			for (int k = 0; k < threads; k++) {
+				stepChunk(colour, k);
+			}
+			return;
+		}
+		try {
+			for (Future<Void> f : workers.invokeAll(tasks.get(colour))) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while stepping tiles", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Failed stepping tiles", e.getCause());
+		}
+		return;
+	}
+
+	/**
+	 * Step the <i>k</i>th share of one colour's tiles in lane <i>k</i>.
+	 */
+	private void stepChunk(int colour, int k) {
+		int[] mine = tiles.acquireTiles(colour);
+		int from = (int)((long)k * mine.length / threads);
+		int to = (int)((long)(k + 1) * mine.length / threads);
+		for (int i = from; i < to; i++) {
+			stepTile(lanes[k], mine[i]);
+		}
+		return;
+	}
+
+	/**
+	 * Step the agents that started this step in one tile, in a random order drawn from the tile's own generator.
+	 */
+	private void stepTile(Lane lane, int t) {
+		lane.random = tileRandom[t];
+		lane.errorEvents = tileErrors[t];
+		lane.randomMoveEvents = tileMoves[t];
+		int from = tileStart[t];
+		int to = tileStart[t + 1];
+		for (int i = to - 1; i > from; i--) {
+			int j = from + lane.random.nextInt(i - from + 1);
+			int s = order[i];
+			order[i] = order[j];
+			order[j] = s;
+		}
+		for (int i = from; i < to; i++) {
+			stepAgent(lane, order[i]);
+		}
+		return;
+	}
+
+	/**
+	 * Cut the grid into tiles big enough for a play radius and give each tile its own generator and samplers, seeded from the simulation's
+	 * generator. Steps are serial if the grid is too small.
+	 */
+	private void makeTiles(int radius) {
+		tiledRadius = radius;
+		int minSide = 2 * (radius + 1);
+		if (!CheckerboardTiles.fits(store.width, store.height, minSide)) {
+			tiles = null;
+			return;
+		}
+		tiles = new CheckerboardTiles(store.width, store.height, minSide, TILE_SIDE);
+		int nTiles = tiles.size();
+		tileRandom = new MersenneTwisterFast[nTiles];
+		tileErrors = new RareEventSampler[nTiles];
+		tileMoves = new RareEventSampler[nTiles];
+		for (int t = 0; t < nTiles; t++) {
+			tileRandom[t] = new MersenneTwisterFast(random.nextLong());
+			tileErrors[t] = new RareEventSampler(tileRandom[t]);
+			tileMoves[t] = new RareEventSampler(tileRandom[t]);
+		}
+		tileStart = new int[nTiles + 1];
+		tileFill = new int[nTiles];
+		for (int c = 0; c < phases.length; c++) {
+			phases[c] = c;
+		}
+		tasks = new ArrayList<>();
+		for (int c = 0; c < CheckerboardTiles.COLOURS; c++) {
+			List<Callable<Void>> colourTasks = new ArrayList<>();
+			for (int k = 0; k < threads; k++) {
+				final int colour = c;
+				final int chunk = k;
+				colourTasks.add(() -> {
+					stepChunk(colour, chunk);
+					return null;
+				});
+			}
+			tasks.add(colourTasks);
+		}
+		return;
+	}
+
+	/**
+	 * Stop the worker threads, if any. The engine steps serially afterwards.
+	 */
+	public void shutdown() {
+		if (workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+		return;
+	}
+
+	/**
+	 * One agent's turn; the equivalent of {@link Agent#step(SimState)}.
+	 */
+	private void stepAgent(Lane lane, int a) {
+		if (store.strategy[a] == AgentStore.DEAD || store.played[a] == stamp) {
+			return;
+		}
+		int partner = pickPartner(lane, a);
+		if (playAndDecideMove(lane, a, partner)) {
+			store.moved[a] = true;
+			moveLogic(lane, a);
+		}
+		updateLifeEvents(lane, a);
+		return;
+	}
+
+	/**
+	 * Pick a random unplayed neighbor within the play radius, scanning from a random starting point as {@link Agent} does.
+	 * @return partner slot, or -1 if there is none
+	 */
+	private int pickPartner(Lane lane, int a) {
+		int count = collectNeighbors(lane, store.x[a], store.y[a], tiles == null ? sim.getPlayRadius() : tiledRadius);
+		int rand = lane.random.nextInt(count);
+		int[] neighbors = lane.neighbors;
+		for (int k = 0; k < count; k++) {
+			int i = rand + k;
+			int b = neighbors[i < count ? i : i - count];
+			if (b != a && store.played[b] != stamp) {
+				return b;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Fill the lane's neighbor buffer with the slots on the cells within <i>radius</i> of (<i>cx</i>, <i>cy</i>), wrapping toroidally and
+	 * including the center.
+	 * @return number of slots found
+	 */
+	private int collectNeighbors(Lane lane, int cx, int cy, int radius) {
+		int w = store.width;
+		int h = store.height;
+		int spanx = Math.min(2 * radius + 1, w);		// never visit a column or row twice on small grids
+		int spany = Math.min(2 * radius + 1, h);
+		if (lane.neighbors.length < spanx * spany) {
+			lane.neighbors = new int[spanx * spany];
+		}
+		int[] neighbors = lane.neighbors;
+		int count = 0;
+		int x0 = wrap(cx - radius, w);
+		int y0 = wrap(cy - radius, h);
+		for (int i = 0, nx = x0; i < spanx; i++, nx = nx + 1 == w ? 0 : nx + 1) {
+			for (int j = 0, ny = y0; j < spany; j++, ny = ny + 1 == h ? 0 : ny + 1) {
+				int b = store.grid[nx + ny * w];
+				if (b != AgentStore.EMPTY) {
+					neighbors[count++] = b;
+				}
+			}
+		}
+		return count;
+	}
+
+	private boolean playAndDecideMove(Lane lane, int a, int b) {
+		if (b < 0) {
+			store.history[a] = GameHistory.push(store.history[a], StrategyTable.NOTHING, StrategyTable.NOTHING);
+			return movesAlone[store.strategy[a]];
+		}
+		int mine = selectAction(a);
+		int theirs = selectAction(b);
+		int sAct = StrategyTable.action(mine);
+		int pAct = StrategyTable.action(theirs);
+		playPD(lane, a, b, sAct, pAct);
+		if (StrategyTable.moves(theirs, sAct)) {
+			moveLogic(lane, b);
+		}
+		return StrategyTable.moves(mine, pAct);
+	}
+
+	private int selectAction(int a) {
+		int s = store.strategy[a];
+		return tables[s][StrategyTable.index(store.history[a], memory[s], store.moved[a])];
+	}
+
+	private void playPD(Lane lane, int a, int b, int myAction, int partnerAction) {
+		myAction = introduceError(lane, myAction);
+		partnerAction = introduceError(lane, partnerAction);
+		double[] resources = store.resources;
+		if (myAction == StrategyTable.COOPERATE && partnerAction == StrategyTable.COOPERATE) {
+			resources[a] += 3;
+			resources[b] += 3;
+		} else if (myAction == StrategyTable.COOPERATE && partnerAction == StrategyTable.DEFECT) {
+			resources[a] -= 1;
+			resources[b] += 5;
+		} else if (myAction == StrategyTable.DEFECT && partnerAction == StrategyTable.COOPERATE) {
+			resources[a] += 5;
+			resources[b] -= 1;
+		}		// must be DEFECT/DEFECT, which means no change
+		if (interactions != null) {
+			interactions.record(lane.stripe, store.getStrategy(a), store.getStrategy(b), myAction, partnerAction);
+		}
+		if (edgeLog != null) {
+			edgeLog.record(sim.schedule.getSteps(), store.id[a], store.id[b], myAction, partnerAction);
+		}
+		store.played[a] = stamp;
+		store.played[b] = stamp;
+		store.history[a] = GameHistory.push(store.history[a], myAction, partnerAction);
+		store.history[b] = GameHistory.push(store.history[b], partnerAction, myAction);
+		return;
+	}
+
+	private int introduceError(Lane lane, int act) {
+		if (lane.errorEvents.next(sim.getErrorRate())) {
+			if (act == StrategyTable.COOPERATE) {		// same flip as Agent.introduceError
+				act = StrategyTable.DEFECT;
+			}
+			if (act == StrategyTable.DEFECT) {
+				act = StrategyTable.COOPERATE;
+			}
+		}
+		return act;
+	}
+
+	private void moveLogic(Lane lane, int a) {
+		if (lane.randomMoveEvents.next(sim.getProbRandomMove())) {
+			store.dirx[a] = (byte)(lane.random.nextInt(3) - 1);
+			store.diry[a] = (byte)(lane.random.nextInt(3) - 1);
+		}
+		move(lane, a);
+		return;
+	}
+
+	/**
+	 * Move one cell in the agent's direction, or reverse direction and stay put if that cell is taken (including by the agent itself).
+	 */
+	private void move(Lane lane, int a) {
+		int tx = wrap(store.x[a] + store.dirx[a], store.width);
+		int ty = wrap(store.y[a] + store.diry[a], store.height);
+		if (store.grid[store.cell(tx, ty)] != AgentStore.EMPTY) {
+			store.dirx[a] = (byte)-store.dirx[a];
+			store.diry[a] = (byte)-store.diry[a];
+			return;
+		}
+		if (lane.tiled) {
+			store.relocate(a, tx, ty);
+		} else {
+			store.moveTo(a, tx, ty);
+		}
+		return;
+	}
+
+	private void updateLifeEvents(Lane lane, int a) {
+		if (store.resources[a] <= 0) {
+			if (lane.tiled) {
+				pending[a] = DIE;
+			} else if (deferLifeEvents) {
+				deaths.add(a);
+			} else {
+				kill(a);
+			}
+		} else if (store.resources[a] >= 100) {
+			if (lane.tiled) {
+				pending[a] = REPRODUCE;
+			} else if (deferLifeEvents) {
+				births.add(a);
+			} else {
+				reproduce(a);
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Carry out the births and deaths queued during the step, deaths first, as {@link LifeEventBuffer} does for agent objects. Slots don't
+	 * change until the store is compacted, so the queued slots are still valid. As there, a queued death is dropped if the agent's resources
+	 * have gone back above 0.
+	 */
+	private void applyLifeEvents() {
+		for (int i = 0; i < deaths.numObjs; i++) {
+			int a = deaths.objs[i];
+			if (store.resources[a] <= 0) {
+				kill(a);
+			}
+		}
+		for (int i = 0; i < births.numObjs; i++) {
+			int a = births.objs[i];
+			if (store.isAlive(a)) {
+				reproduce(a);
+			}
+		}
+		deaths.clear();
+		births.clear();
+		return;
+	}
+
+	/**
+	 * Carry out the births and deaths decided in a tiled step, deaths first, each in the order agents were bucketed by tile. A death is
+	 * dropped if the agent's resources have gone back above 0 since it was decided.
+	 * @param n number of agents in the stepping order
+	 */
+	private void applyPending(int n) {
+		for (int i = 0; i < n; i++) {
+			int a = order[i];
+			if (pending[a] == DIE) {
+				pending[a] = NO_EVENT;
+				if (store.resources[a] <= 0) {
+					kill(a);
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			int a = order[i];
+			if (pending[a] == REPRODUCE) {
+				pending[a] = NO_EVENT;
+				if (store.isAlive(a)) {
+					reproduce(a);
+				}
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Same rules as {@link Agent}: no offspring at the population cap unless the cap is enforced by culling a random agent afterwards.
+	 */
+	private void reproduce(int a) {
+		int child;
+		if (store.live >= sim.acquirePopulationCap()) {
+			if (!sim.isEnforceCapAfterReproduction()) {
+				return;
+			}
+			child = makeChild(a);
+			recordBirth(child, a);		// before the cull, which may pick the offspring
+			kill(randomLive());
+		} else {
+			child = makeChild(a);
+			recordBirth(child, a);
+		}
+		if (child < 0) {
+			return;		// can't reproduce if there's no space nearby
+		}
+		double split = store.resources[a] / 2;
+		store.resources[child] = store.resources[a] - split;
+		store.resources[a] = split;
+		return;
+	}
+
+	private void recordBirth(int child, int parent) {
+		if (lineage != null && child >= 0) {
+			lineage.birth(store.id[child], store.id[parent], sim.schedule.getSteps());
+		}
+		return;
+	}
+
+	private void kill(int a) {
+		if (lineage != null && store.isAlive(a)) {
+			lineage.death(store.id[a], sim.schedule.getSteps());
+		}
+		store.kill(a);
+		return;
+	}
+
+	private int makeChild(int a) {
+		Strategy strat = store.getStrategy(a);
+		if (sim.isLocalReproduction()) {
+			return makeAgentNear(store.x[a], store.y[a], sim.getReproductionRadius(), strat);
+		}
+		return makeAgent(strat);
+	}
+
+	private int randomLive() {
+		int slot;
+		do {
+			slot = random.nextInt(store.size);
+		} while (store.strategy[slot] == AgentStore.DEAD);
+		return slot;
+	}
+
+	/**
+	 * Make a new agent at a random empty location; the array equivalent of {@link PDWASim#makeAgent(Strategy)}.
+	 * @param strat game strategy
+	 * @return the new agent's slot, or -1 if the grid is full
+	 */
+	public int makeAgent(Strategy strat) {
+		int cell = store.free.sample(random);
+		if (cell == FreeCellIndex.NONE) {
+			return -1;
+		}
+		return add(store.free.x(cell), store.free.y(cell), strat);
+	}
+
+	/**
+	 * Make a new agent at a random empty location within <i>radius</i> of (<i>cx</i>, <i>cy</i>). Candidate cells are drawn without
+	 * replacement using the simulation's random number generator, so this is replicable.
+	 * @return the new agent's slot, or -1 if there is no empty location nearby
+	 */
+	private int makeAgentNear(int cx, int cy, int radius, Strategy strat) {
+		localSampler.start(cx, cy, radius);
+		while (localSampler.hasNext()) {
+			int cell = localSampler.next(random);		// same packing as the store's grid
+			if (store.grid[cell] == AgentStore.EMPTY) {
+				return add(localSampler.x(cell), localSampler.y(cell), strat);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Add an agent at an empty location, drawing its direction and resources as the {@link Agent} constructor does.
+	 */
+	private int add(int ax, int ay, Strategy strat) {
+		int dx = random.nextInt(3) - 1;
+		int dy = random.nextInt(3) - 1;
+		double res = random.nextInt(40) + 10;	// uniformly distributed in [10, 49]
+		return store.add(ax, ay, strat, dx, dy, res);
+	}
+
+	private static int wrap(int v, int n) {
+		return v >= 0 ? (v < n ? v : v % n) : (v % n + n) % n;
+	}
+
+	/**
+	 * Attach the stopper that allows this engine to be removed from the schedule once every agent has died.
+	 * @param stopper stoppable object returned by schedule when adding a repeating object
+	 */
+	public void attachStopper(Stoppable stopper) {
+		this.stopper = stopper;
+		return;
+	}
+
+	/**
+	 * Get the agents this engine is running.
+	 * @return agent storage
+	 */
+	public AgentStore acquireStore() {
+		return store;
+	}
+
+	/**
+	 * Everything one thread needs to step agents: a random number generator and samplers (the simulation's for serial steps, the current
+	 * tile's for tiled ones), a scratch buffer for partner candidates, and a stripe of the interaction counts.
+	 */
+	private static final class Lane {
+
+		final int stripe;
+		final boolean tiled;				// in a tiled step: moves must be thread-safe and life events wait for the end of the step
+		MersenneTwisterFast random;
+		RareEventSampler errorEvents;
+		RareEventSampler randomMoveEvents;
+		int[] neighbors = new int[9];
+
+		Lane(int stripe, boolean tiled) {
+			this.stripe = stripe;
+			this.tiled = tiled;
+		}
+
+	}
+
+}
@@ -0,0 +1,236 @@
+package agents;
+
+import java.util.Arrays;
+
+/**
+ * Connected clusters of cooperators (agents whose {@link Strategy#isCooperator()} is true), where two cooperators are connected if they
+ * stand on neighboring cells (Moore neighborhood, toroidal). The clusters are kept in a union-find forest over grid cells: a cooperator
+ * arriving on a cell is joined to its cooperating neighbors right away, so births and moves cost a handful of near-constant-time unions.
+ *
+ * <p>Union-find can't split a cluster, so a cooperator leaving a cell only marks the forest stale; it is rebuilt the next time anyone asks
+ * for cluster statistics (normally once per observer report, and agents move in most steps, so in practice at most once a step). The
+ * occupied cells are also kept packed in a list, with a reverse index from cell to position as in {@link space.OccupiedBlocks}, so a rebuild
+ * relinks just the cooperators rather than walking the grid, and costs time in proportion to their number. Counts of clusters and the
+ * largest cluster are maintained during unions, so reading them after a rebuild is free.
+ */
+public final class ClusterTracker {
+
+	private static final int NONE = -1;
+
+	private final int width, height;
+	private final int[] position;			// cell -> its position in cells, or NONE if no cooperator stands there
+	private final int[] cells;				// cooperator cells, packed in positions [0, members)
+	private final int[] parent;				// union-find parent of a cooperator cell
+	private final int[] size;				// number of cells in a cluster, valid at its root
+	private int members = 0;				// cooperators on the grid
+	private int clusters = 0;
+	private int largest = 0;
+	private boolean stale = false;			// has a cooperator left a cell since the last rebuild?
+
+	public ClusterTracker(int width, int height) {
+		this.width = width;
+		this.height = height;
+		position = new int[width * height];
+		Arrays.fill(position, NONE);
+		cells = new int[width * height];
+		parent = new int[width * height];
+		size = new int[width * height];
+	}
+
+	/**
+	 * A cooperator has arrived at a cell.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void occupy(int x, int y) {
+		int c = x + y * width;
+		cells[members] = c;
+		position[c] = members++;
+		if (stale) {				// everything will be relinked by the rebuild anyway
+			return;
+		}
+		parent[c] = c;
+		size[c] = 1;
+		clusters++;
+		largest = Math.max(largest, 1);
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				int n = wrap(x + dx, width) + wrap(y + dy, height) * width;
+				if (n != c && position[n] != NONE) {
+					union(c, n);
+				}
+			}
+		}
+		return;
+	}
+
+	/**
+	 * A cooperator has left a cell (moved away or died).
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void vacate(int x, int y) {
+		int c = x + y * width;
+		int last = cells[--members];		// move the last cooperator into the hole
+		cells[position[c]] = last;
+		position[last] = position[c];
+		position[c] = NONE;
+		stale = true;
+		return;
+	}
+
+	/**
+	 * A cooperator has moved from one cell to another.
+	 */
+	public void move(int fromx, int fromy, int tox, int toy) {
+		vacate(fromx, fromy);
+		occupy(tox, toy);
+		return;
+	}
+
+	/**
+	 * A cooperator has moved, recorded without touching the forest: only the two cells and the cooperator's own place in the list change and
+	 * the forest is marked stale, so threads moving agents in parts of the grid that don't overlap can call this at the same time. The
+	 * clusters are rebuilt on the next query.
+	 */
+	public void relocate(int fromx, int fromy, int tox, int toy) {
+		int from = fromx + fromy * width;
+		int to = tox + toy * width;
+		int p = position[from];
+		cells[p] = to;
+		position[to] = p;
+		position[from] = NONE;
+		stale = true;
+		return;
+	}
+
+	/**
+	 * Number of cooperator clusters.
+	 * @return clusters
+	 */
+	public int getClusters() {
+		refresh();
+		return clusters;
+	}
+
+	/**
+	 * Size of the largest cooperator cluster.
+	 * @return cooperators in the largest cluster
+	 */
+	public int getLargest() {
+		refresh();
+		return largest;
+	}
+
+	/**
+	 * Fraction of all cooperators that are in the largest cluster.
+	 * @return fraction from 0 to 1 (0 when there are no cooperators)
+	 */
+	public double getLargestFraction() {
+		refresh();
+		return members == 0 ? 0 : (double)largest / members;
+	}
+
+	/**
+	 * Number of cooperators on the grid.
+	 * @return cooperators
+	 */
+	public int getMembers() {
+		return members;
+	}
+
+	/**
+	 * The cluster-size distribution: entry <i>s</i> is the number of clusters with <i>s</i> cooperators. This looks at every cooperator, so
+	 * it is meant for occasional snapshots rather than every step.
+	 * @param into array to fill if it is long enough, or null
+	 * @return distribution, with at least {@link #getLargest()} + 1 entries
+	 */
+	public int[] sizeDistribution(int[] into) {
+		refresh();
+		if (into == null || into.length <= largest) {
+			into = new int[largest + 1];
+		} else {
+			Arrays.fill(into, 0);
+		}
+		for (int i = 0; i < members; i++) {
+			int c = cells[i];
+			if (parent[c] == c) {
+				into[size[c]]++;
+			}
+		}
+		return into;
+	}
+
+	private void refresh() {
+		if (stale) {
+			rebuild();
+		}
+		return;
+	}
+
+	/**
+	 * Relink every cooperator from scratch, going through the list rather than the grid. Linking each cell to the neighbors right, below,
+	 * and diagonally below covers every neighboring pair once.
+	 */
+	private void rebuild() {
+		clusters = members;
+		largest = members > 0 ? 1 : 0;
+		for (int i = 0; i < members; i++) {
+			int c = cells[i];
+			parent[c] = c;
+			size[c] = 1;
+		}
+		for (int i = 0; i < members; i++) {
+			int c = cells[i];
+			int x = c % width;
+			int y = c / width;
+			int below = wrap(y + 1, height) * width;
+			int right = wrap(x + 1, width);
+			int left = wrap(x - 1, width);
+			link(c, right + y * width);
+			link(c, left + below);
+			link(c, x + below);
+			link(c, right + below);
+		}
+		stale = false;
+		return;
+	}
+
+	private void link(int c, int n) {
+		if (position[n] != NONE) {
+			union(c, n);
+		}
+		return;
+	}
+
+	private void union(int a, int b) {
+		int ra = find(a);
+		int rb = find(b);
+		if (ra == rb) {
+			return;
+		}
+		if (size[ra] < size[rb]) {		// hang the smaller tree under the larger
+			int t = ra;
+			ra = rb;
+			rb = t;
+		}
+		parent[rb] = ra;
+		size[ra] += size[rb];
+		clusters--;
+		largest = Math.max(largest, size[ra]);
+		return;
+	}
+
+	private int find(int c) {
+		while (parent[c] != c) {
+			parent[c] = parent[parent[c]];	// path halving
+			c = parent[c];
+		}
+		return c;
+	}
+
+	private static int wrap(int v, int n) {
+		return v >= 0 ? (v < n ? v : v - n) : v + n;
+	}
+
+}
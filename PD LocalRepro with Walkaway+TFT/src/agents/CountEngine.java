@@ -0,0 +1,576 @@
+package agents;
+
+import ec.util.MersenneTwisterFast;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import sim.engine.Stoppable;
+import sim.util.IntBag;
+import simulation.CountSampler;
+import simulation.PDWASim;
+
+/**
+ * Alternative PD engine for the well-mixed limit, where everyone is within the play radius of everyone else and offspring go anywhere, so
+ * where an agent stands makes no difference to anything. The population is kept only as counts: by type (strategy, the games the strategy
+ * remembers, and whether the agent has ever moved, which together pick the entry of its compiled {@link StrategyTable}) and by resources.
+ * Each step is drawn from the counts with {@link CountSampler}, so it costs about the same for a thousand agents as for millions.
+ *
+ * <p>A step is the one {@link Agent}s take when each sees the whole population, with births and deaths deferred to the end of the step
+ * (see {@link LifeEventBuffer}). Stepping everyone in random order, each unplayed agent picking an unplayed partner at random, pairs
+ * everyone up at random, with the earlier of each pair as the initiator and, if the population is odd, one agent left over. So the engine
+ * draws how many initiators of each type play partners of each type, how many of those games have an execution error on either side, and
+ * which resource levels the agents in each outcome come from, all without replacement. Only initiators (and the agent left over) die or
+ * reproduce, as only they finish their turns; partners can go above or below the thresholds until they next initiate. Births below the
+ * population cap go to a random set of the would-be parents at once; an enforced cap is applied birth by birth, culling a random agent
+ * after each, as the other engines do.
+ *
+ * <p>Resources are whole numbers here: an odd amount splits with the extra unit going to the offspring, where the other engines would give
+ * each half a half. The play radius, random moves and local reproduction mean nothing without positions, and there are no agents to draw,
+ * follow or log by ID, so clusters, the edge log and lineage record nothing.
+ */
+public class CountEngine implements Steppable {
+
+	private static final int MAX_GROUPS = 16;		// distinct outcomes a type can have in one step: 8 as initiator, 4 as partner, 1 alone
+	private static final int REPRODUCE = 100;		// resources at which an initiator reproduces
+	private static final int STEP_ROOM = 5;			// most resources gained in one game
+
+	private final PDWASim sim;
+	private final MersenneTwisterFast random;
+	private final CountSampler sampler;
+	private final StrategyCounts counts;
+	private final InteractionCounts interactions;	// null if games aren't counted
+	private final int area;							// grid cells; no births once every one would be taken
+	private Stoppable stopper;
+
+	private final Strategy[] strategies = Strategy.values();
+	private final int types;
+	private final int[] first;			// strategy ordinal -> its first type
+	private final int[] fresh;			// strategy ordinal -> type of a newborn
+	private final int[] strategyOf;		// type -> strategy ordinal
+	private final int[] entry;			// type -> compiled strategy entry
+
+	private Population now;				// agents at the start of the step
+	private Population next;			// agents as they come out of it
+	private int low = -16;				// resources counted at level index 0
+
+	private final IntBag occupied = new IntBag();	// types with agents this step
+	private int alone;					// position in occupied of the type left without a partner, or -1
+	private int[] initiators = new int[0];			// by position in occupied
+	private int[] partners = new int[0];
+	private int[] pairs = new int[0];	// initiator position * occupied + partner position -> games
+
+	private final int[] groups;			// type -> distinct outcomes so far this step
+	private final int[] groupSize;		// type * MAX_GROUPS + outcome -> agents with it
+	private final int[] groupType;		// type they become
+	private final int[] groupDelta;		// change in resources
+	private final boolean[] groupInitiator;
+
+	private final IntBag birthType = new IntBag();		// would-be parents, as agents of a type at a level index
+	private final IntBag birthLevel = new IntBag();
+	private final IntBag birthCount = new IntBag();
+	private final IntBag living = new IntBag();			// types to look in for a random agent to cull
+
+	public CountEngine(PDWASim sim) {
+		this.sim = sim;
+		random = sim.random;
+		sampler = new CountSampler(random);
+		counts = sim.acquireStrategyCounts();
+		interactions = sim.acquireInteractions();
+		area = sim.getGridWidth() * sim.getGridHeight();
+		first = new int[strategies.length];
+		fresh = new int[strategies.length];
+		int n = 0;
+		for (Strategy s : strategies) {
+			first[s.ordinal()] = n;
+			fresh[s.ordinal()] = n + StrategyTable.index(GameHistory.EMPTY, s.getMemory(), false);
+			n += StrategyTable.forStrategy(s).length;
+		}
+		types = n;
+		strategyOf = new int[types];
+		entry = new int[types];
+		for (Strategy s : strategies) {
+			int[] table = StrategyTable.forStrategy(s);
+			for (int i = 0; i < table.length; i++) {
+				strategyOf[first[s.ordinal()] + i] = s.ordinal();
+				entry[first[s.ordinal()] + i] = table[i];
+			}
+		}
+		now = new Population(types, 256);
+		next = new Population(types, 256);
+		groups = new int[types];
+		groupSize = new int[types * MAX_GROUPS];
+		groupType = new int[types * MAX_GROUPS];
+		groupDelta = new int[types * MAX_GROUPS];
+		groupInitiator = new boolean[types * MAX_GROUPS];
+	}
+
+	@Override
+	public void step(SimState state) {
+		makeRoom();
+		pair();
+		play();
+		assign();
+		Population t = now;
+		now = next;
+		next = t;
+		reproduce();
+		if (counts.total() == 0) {
+			stopper.stop();
+		}
+		return;
+	}
+
+	/**
+	 * Add a new agent, with resources drawn as the {@link Agent} constructor draws them.
+	 * @param strat game strategy
+	 * @return false if the grid is full
+	 */
+	public boolean makeAgent(Strategy strat) {
+		if (counts.total() >= area) {
+			return false;
+		}
+		int level = random.nextInt(40) + 10;	// uniformly distributed in [10, 49]
+		now.add(fresh[strat.ordinal()], level - low, 1);
+		counts.add(strat);
+		return true;
+	}
+
+	/**
+	 * Widen the range of resource levels if anyone is near enough to its ends to leave it this step.
+	 */
+	private void makeRoom() {
+		int least = Integer.MAX_VALUE;
+		int most = Integer.MIN_VALUE;
+		for (int t = 0; t < types; t++) {
+			if (now.size[t] > 0) {
+				least = Math.min(least, now.lo[t]);
+				most = Math.max(most, now.hi[t]);
+			}
+		}
+		if (least == Integer.MAX_VALUE || (least >= 1 && most + STEP_ROOM <= now.span)) {
+			return;
+		}
+		int shift = least >= 1 ? 0 : now.span / 2;		// levels move up this many indices
+		int span = 2 * now.span;
+		now.widen(shift, span);
+		next.widen(shift, span);
+		low -= shift;
+		return;
+	}
+
+	/**
+	 * Pair everyone up at random: draw how many agents of each type initiate, and how many initiators of each type play partners of each
+	 * type.
+	 */
+	private void pair() {
+		occupied.clear();
+		int n = 0;
+		for (int t = 0; t < types; t++) {
+			if (now.size[t] > 0) {
+				occupied.add(t);
+				n += now.size[t];
+			}
+		}
+		int k = occupied.numObjs;
+		if (initiators.length < k) {
+			initiators = new int[2 * k];
+			partners = new int[2 * k];
+		}
+		if (pairs.length < k * k) {
+			pairs = new int[4 * k * k];
+		}
+		alone = -1;
+		if (n % 2 == 1) {		// the last agent in the stepping order finds everyone played
+			int r = random.nextInt(n);
+			do {
+				r -= now.size[occupied.objs[++alone]];
+			} while (r >= 0);
+		}
+		int games = n / 2;
+		int need = games;		// initiators are a random half of the rest
+		int left = 2 * games;
+		for (int i = 0; i < k; i++) {
+			int m = now.size[occupied.objs[i]] - (i == alone ? 1 : 0);
+			initiators[i] = sampler.hypergeometric(need, m, left);
+			partners[i] = m - initiators[i];
+			need -= initiators[i];
+			left -= m;
+		}
+		left = games;
+		for (int i = 0; i < k; i++) {		// each type's initiators take their partners from those not yet taken
+			need = initiators[i];
+			int pool = left;
+			for (int j = 0; j < k; j++) {
+				int x = need == 0 ? 0 : sampler.hypergeometric(need, partners[j], pool);
+				pool -= partners[j];
+				partners[j] -= x;
+				need -= x;
+				pairs[i * k + j] = x;
+			}
+			left -= initiators[i];
+		}
+		return;
+	}
+
+	/**
+	 * Play every game drawn by {@link #pair()}, sorting the players of each type into groups by how the step turns out for them.
+	 */
+	private void play() {
+		int k = occupied.numObjs;
+		for (int i = 0; i < k; i++) {
+			groups[occupied.objs[i]] = 0;
+		}
+		double errorRate = sim.getErrorRate();
+		for (int i = 0; i < k; i++) {
+			int a = occupied.objs[i];
+			for (int j = 0; j < k; j++) {
+				int games = pairs[i * k + j];
+				if (games == 0) {
+					continue;
+				}
+				int b = occupied.objs[j];
+				int mine = entry[a];
+				int theirs = entry[b];
+				int sAct = StrategyTable.action(mine);
+				int pAct = StrategyTable.action(theirs);
+				boolean moved = isMoved(a) || StrategyTable.moves(mine, pAct);	// moving in its own turn marks the initiator
+				int flipMine = sampler.binomial(games, errorRate);
+				int flipBoth = sampler.binomial(flipMine, errorRate);
+				int flipTheirs = sampler.binomial(games - flipMine, errorRate);
+				outcome(a, b, sAct, pAct, moved, games - flipMine - flipTheirs);
+				outcome(a, b, flip(sAct), pAct, moved, flipMine - flipBoth);
+				outcome(a, b, sAct, flip(pAct), moved, flipTheirs);
+				outcome(a, b, flip(sAct), flip(pAct), moved, flipBoth);
+			}
+		}
+		if (alone >= 0) {
+			int a = occupied.objs[alone];
+			boolean moved = isMoved(a) || StrategyTable.movesAlone(strategies[strategyOf[a]]);
+			group(a, after(a, StrategyTable.NOTHING, StrategyTable.NOTHING, moved), 0, true, 1);
+		}
+		return;
+	}
+
+	/**
+	 * Record <i>games</i> games between an initiator of type <i>a</i> and a partner of type <i>b</i> that were played as given.
+	 */
+	private void outcome(int a, int b, int myAction, int partnerAction, boolean moved, int games) {
+		if (games == 0) {
+			return;
+		}
+		int mine = 0;
+		int theirs = 0;
+		if (myAction == StrategyTable.COOPERATE && partnerAction == StrategyTable.COOPERATE) {
+			mine = 3;
+			theirs = 3;
+		} else if (myAction == StrategyTable.COOPERATE && partnerAction == StrategyTable.DEFECT) {
+			mine = -1;
+			theirs = 5;
+		} else if (myAction == StrategyTable.DEFECT && partnerAction == StrategyTable.COOPERATE) {
+			mine = 5;
+			theirs = -1;
+		}		// must be DEFECT/DEFECT, which means no change
+		group(a, after(a, myAction, partnerAction, moved), mine, true, games);
+		group(b, after(b, partnerAction, myAction, isMoved(b)), theirs, false, games);
+		if (interactions != null) {
+			interactions.record(0, strategies[strategyOf[a]], strategies[strategyOf[b]], myAction, partnerAction, games);
+		}
+		return;
+	}
+
+	/**
+	 * Add <i>n</i> agents of type <i>t</i> to the group that becomes type <i>into</i> with a change of <i>delta</i> in resources.
+	 */
+	private void group(int t, int into, int delta, boolean initiator, int n) {
+		int g = t * MAX_GROUPS;
+		int end = g + groups[t];
+		while (g < end && (groupType[g] != into || groupDelta[g] != delta || groupInitiator[g] != initiator)) {
+			g++;
+		}
+		if (g == end) {
+			groupType[g] = into;
+			groupDelta[g] = delta;
+			groupInitiator[g] = initiator;
+			groupSize[g] = 0;
+			groups[t]++;
+		}
+		groupSize[g] += n;
+		return;
+	}
+
+	/**
+	 * Deal each type's agents out to its groups, drawing which resource levels each group gets without replacement, and put them into the
+	 * next population. Initiators that run out of resources die here; those that reach the threshold are queued to reproduce.
+	 */
+	private void assign() {
+		for (int i = 0; i < occupied.numObjs; i++) {
+			int t = occupied.objs[i];
+			int[] levels = now.levels[t];
+			int pool = now.size[t];
+			for (int g = t * MAX_GROUPS, end = g + groups[t]; g < end; g++) {
+				boolean last = g == end - 1;
+				int need = groupSize[g];
+				int left = pool;
+				for (int l = now.lo[t]; l < now.hi[t] && need > 0; l++) {
+					int x = last ? levels[l] : sampler.hypergeometric(need, levels[l], left);
+					left -= levels[l];
+					if (x > 0) {
+						levels[l] -= x;
+						need -= x;
+						deliver(g, l, x);
+					}
+				}
+				pool -= groupSize[g];
+			}
+			now.clear(t);
+		}
+		return;
+	}
+
+	/**
+	 * Put <i>n</i> agents of a group, at level index <i>l</i> before the step, into the next population.
+	 */
+	private void deliver(int g, int l, int n) {
+		int t = groupType[g];
+		int to = l + groupDelta[g];
+		int resources = to + low;
+		if (groupInitiator[g] && resources <= 0) {
+			counts.remove(strategies[strategyOf[t]], n);
+			return;
+		}
+		next.add(t, to, n);
+		if (groupInitiator[g] && resources >= REPRODUCE) {
+			birthType.add(t);
+			birthLevel.add(to);
+			birthCount.add(n);
+		}
+		return;
+	}
+
+	/**
+	 * Carry out the births queued in this step, in random order: all at once while there is room under the population cap, then one at a
+	 * time with a cull after each if the cap is enforced.
+	 */
+	private void reproduce() {
+		int queued = 0;
+		for (int e = 0; e < birthCount.numObjs; e++) {
+			queued += birthCount.objs[e];
+		}
+		int cap = sim.acquirePopulationCap();
+		int room = Math.min(queued, Math.min(cap, area) - counts.total());
+		if (room > 0) {		// the first parents in stepping order, which are a random set of them
+			int need = room;
+			int left = queued;
+			for (int e = 0; e < birthCount.numObjs && need > 0; e++) {
+				int x = sampler.hypergeometric(need, birthCount.objs[e], left);
+				left -= birthCount.objs[e];
+				birthCount.objs[e] -= x;
+				need -= x;
+				split(birthType.objs[e], birthLevel.objs[e], x, true);
+			}
+			queued -= room;
+		}
+		if (queued > 0 && sim.isEnforceCapAfterReproduction()) {
+			findLiving();
+			while (queued > 0) {
+				int r = random.nextInt(queued);
+				int e = 0;
+				while (r >= birthCount.objs[e]) {
+					r -= birthCount.objs[e++];
+				}
+				birthCount.objs[e]--;
+				queued--;
+				queued -= reproduceOne(birthType.objs[e], birthLevel.objs[e], cap);
+			}
+		}
+		birthType.clear();
+		birthLevel.clear();
+		birthCount.clear();
+		return;
+	}
+
+	/**
+	 * One parent of type <i>t</i> at level index <i>l</i>, no longer queued, reproduces at or above the population cap: its offspring is
+	 * made if there is room on the grid, a random agent is culled, and then they split the resources, as in {@link Agent}.
+	 * @return number of queued parents culled (0 or 1)
+	 */
+	private int reproduceOne(int t, int l, int cap) {
+		int n = counts.total();
+		if (n < cap) {		// an earlier cull made room
+			if (n < area) {
+				split(t, l, 1, true);
+			}
+			return 0;
+		}
+		boolean child = n < area;
+		int r = random.nextInt(child ? n + 1 : n);
+		if (child && r == n) {		// the offspring itself
+			split(t, l, 1, false);
+			return 0;
+		}
+		int v = 0;
+		while (r >= now.size[living.objs[v]]) {
+			r -= now.size[living.objs[v++]];
+		}
+		int vt = living.objs[v];
+		int vl = now.lo[vt];
+		while (r >= now.levels[vt][vl]) {
+			r -= now.levels[vt][vl++];
+		}
+		now.add(vt, vl, -1);
+		counts.remove(strategies[strategyOf[vt]]);
+		// r is now a uniform position among the agents of the victim's class; the queued parents come first, then the parent itself
+		for (int e = 0; e < birthCount.numObjs; e++) {
+			if (birthType.objs[e] == vt && birthLevel.objs[e] == vl) {
+				if (r < birthCount.objs[e]) {
+					birthCount.objs[e]--;
+					split(t, l, 1, child);
+					return 1;
+				}
+				r -= birthCount.objs[e];
+			}
+		}
+		if (vt == t && vl == l && r == 0) {		// the parent: its offspring takes what it would have kept
+			if (child) {
+				addChild(t, l, 1);
+			}
+			return 0;
+		}
+		split(t, l, 1, child);
+		return 0;
+	}
+
+	/**
+	 * <i>n</i> parents of type <i>t</i> at level index <i>l</i> halve their resources, and <i>n</i> offspring get the rest (or are lost).
+	 */
+	private void split(int t, int l, int n, boolean child) {
+		if (n == 0) {
+			return;
+		}
+		int resources = l + low;
+		now.add(t, l, -n);
+		now.add(t, resources / 2 - low, n);
+		if (child) {
+			addChild(t, l, n);
+		}
+		return;
+	}
+
+	/**
+	 * Add <i>n</i> offspring of parents of type <i>t</i> at level index <i>l</i>, with the larger half of their resources.
+	 */
+	private void addChild(int t, int l, int n) {
+		int resources = l + low;
+		int s = strategyOf[t];
+		now.add(fresh[s], resources - resources / 2 - low, n);
+		counts.add(strategies[s], n);
+		return;
+	}
+
+	/**
+	 * List every type an agent could be culled from: those with agents and those offspring are born into.
+	 */
+	private void findLiving() {
+		living.clear();
+		for (int t = 0; t < types; t++) {
+			if (now.size[t] > 0 || t == fresh[strategyOf[t]]) {
+				living.add(t);
+			}
+		}
+		return;
+	}
+
+	private boolean isMoved(int t) {
+		return ((t - first[strategyOf[t]]) & 1) != 0;
+	}
+
+	/**
+	 * Type an agent of type <i>t</i> becomes after a round with the given actions.
+	 */
+	private int after(int t, int self, int other, boolean moved) {
+		int s = strategyOf[t];
+		int memory = strategies[s].getMemory();
+		long history = GameHistory.push((t - first[s]) >>> 1, self, other);
+		return first[s] + StrategyTable.index(history, memory, moved);
+	}
+
+	/**
+	 * The same flip as {@link Agent}'s execution errors, which turns a cooperation into a defection and then straight back, so an error
+	 * always leaves a cooperation.
+	 */
+	private static int flip(int act) {
+		return StrategyTable.COOPERATE;
+	}
+
+	/**
+	 * Attach the stopper that allows this engine to be removed from the schedule once every agent has died.
+	 * @param stopper stoppable object returned by schedule when adding a repeating object
+	 */
+	public void attachStopper(Stoppable stopper) {
+		this.stopper = stopper;
+		return;
+	}
+
+	/**
+	 * Agents by type and resource level index. Each type's levels are only allocated once it has agents.
+	 */
+	private static final class Population {
+
+		final int[][] levels;			// type -> agents at each level index, or null
+		final int[] size;				// type -> agents
+		final int[] lo, hi;				// type -> level indices that may hold agents, hi exclusive
+		int span;						// level indices
+
+		Population(int types, int span) {
+			levels = new int[types][];
+			size = new int[types];
+			lo = new int[types];
+			hi = new int[types];
+			this.span = span;
+			for (int t = 0; t < types; t++) {
+				clear(t);
+			}
+		}
+
+		void add(int t, int l, int n) {
+			if (levels[t] == null) {
+				levels[t] = new int[span];
+			}
+			levels[t][l] += n;
+			size[t] += n;
+			lo[t] = Math.min(lo[t], l);
+			hi[t] = Math.max(hi[t], l + 1);
+			return;
+		}
+
+		/**
+		 * Forget a type's range once its agents have all been taken out.
+		 */
+		void clear(int t) {
+			size[t] = 0;
+			lo[t] = Integer.MAX_VALUE;
+			hi[t] = Integer.MIN_VALUE;
+			return;
+		}
+
+		/**
+		 * Move every level up <i>shift</i> indices in a wider range.
+		 */
+		void widen(int shift, int newSpan) {
+			for (int t = 0; t < levels.length; t++) {
+				if (levels[t] != null) {
+					int[] wider = new int[newSpan];
+					System.arraycopy(levels[t], 0, wider, shift, span);
+					levels[t] = wider;
+				}
+				if (size[t] > 0) {
+					lo[t] += shift;
+					hi[t] += shift;
+				}
+			}
+			span = newSpan;
+			return;
+		}
+
+	}
+
+}
@@ -0,0 +1,316 @@
+package agents;
+
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import sim.engine.Stoppable;
+import sim.util.Bag;
+import sim.util.IntBag;
+import simulation.PDWASim;
+import space.AgentSpace;
+import space.OccupiedBlocks;
+
+/**
+ * Agents flying in a straight line with nobody near. An agent that moves on its own and had nobody within the play radius will, until
+ * someone comes within the radius or it picks a new random direction, move one cell along its direction every step with its resources
+ * unchanged. So at the end of such a step its next few steps are worked out in one go: the number of steps before its next random change
+ * of direction is drawn from the geometric distribution, and the flight is made as long as that (up to {@link #MAX_FLIGHT}) or until the
+ * first step at which its path would bring it within the play radius of an agent or of another flight. The agent then comes off the schedule
+ * and stays in the space where it took off; nobody else is near enough to tell the difference. Flights are kept in a calendar of the steps
+ * they end in, and landed by this tracker, scheduled after the agents, once their last step is over.
+ *
+ * <p>Each flight reserves the {@link OccupiedBlocks} that its path passes within the play radius of, and no two flights share a block, so a
+ * flight is planned by looking at a few dozen block counts rather than every cell along its path. A flight also lands early when an agent
+ * moves or is born within the play radius of what is left of its path or of the cell it stands on, or when it is culled. On landing it is moved to where it would be by
+ * now (as if it had already moved in the current step), catches up on the empty rounds it missed, and goes back on the schedule from the
+ * next step; a flight that ran until its change of direction makes that change the next time the agent moves. Births look for a cell
+ * through {@link #clear(int, int)}, which lands any flight that would come near the cell and says whether it is still empty.
+ *
+ * <p>Only the random numbers drawn differ from a run without flights, as far as the agents' games go. The GUI draws a flying agent where
+ * it took off, and flights aren't used while clusters are tracked, since those need every position. Changing the play radius or the
+ * chance of a random move lands everyone. A play radius of 0 is too small to fly: an agent blocking a path would not be noticed.
+ */
+public final class FlightTracker implements Steppable {
+
+	public static final int MAX_FLIGHT = 64;		// longest flight in steps
+
+	private final PDWASim sim;
+	private final AgentSpace space;
+	private final OccupiedBlocks blocks;
+	private final int width, height;
+	private final Agent[] reserved;			// block -> flight whose path passes within the play radius of it, or null
+	private final Bag[] due = new Bag[MAX_FLIGHT + 1];	// flights by the step they end in, modulo the array length
+	private final IntBag near = new IntBag();	// scratch for blocks around a cell
+	private int flying = 0;
+	private int radius;						// play radius the flights were planned for
+	private double probRandomMove;			// chance of a random move the flight lengths were drawn for
+	private Stoppable stopper;
+
+	/**
+	 * @param sim the simulation
+	 * @param blocks occupied cells by block, kept up to date by the simulation
+	 */
+	public FlightTracker(PDWASim sim, OccupiedBlocks blocks) {
+		this.sim = sim;
+		this.blocks = blocks;
+		space = sim.acquireAgentSpace();
+		width = space.getWidth();
+		height = space.getHeight();
+		reserved = new Agent[blocks.size()];
+		for (int i = 0; i < due.length; i++) {
+			due[i] = new Bag();
+		}
+		radius = sim.getPlayRadius();
+		probRandomMove = sim.getProbRandomMove();
+	}
+
+	/**
+	 * Land the flights whose last step this was.
+	 */
+	@Override
+	public void step(SimState state) {
+		long now = sim.schedule.getSteps();
+		checkParams();
+		Bag landing = due[(int)(now % due.length)];
+		while (landing.numObjs > 0) {
+			land((Agent)landing.objs[landing.numObjs - 1]);
+		}
+		if (sim.acquireStrategyCounts().total() == 0) {
+			stopper.stop();
+		}
+		return;
+	}
+
+	/**
+	 * Start a flight for an agent that moved on its own with nobody within the play radius in this step, if its path is clear for at least
+	 * one step.
+	 * @param a agent that has just moved
+	 * @param now current time step
+	 */
+	void launch(Agent a, long now) {
+		if (!checkParams() || radius < 1) {
+			return;
+		}
+		long straight = sim.acquireRandomMoveEvents().failures(probRandomMove);	// steps before the next change of direction
+		int longest = (int)Math.min(MAX_FLIGHT, straight);
+		int length = plan(a, longest);
+		if (length < 1) {
+			return;
+		}
+		a.flightLength = length;
+		reserve(a, a);
+		a.flightStart = now;
+		a.flightTurns = length == straight;
+		Bag landing = due[(int)((now + length) % due.length)];
+		a.flightSlot = landing.numObjs;
+		landing.add(a);
+		flying++;
+		a.acquireStopper().stop();
+		return;
+	}
+
+	/**
+	 * An agent has arrived on a cell, by moving or being born. Lands the flight whose path still to come, or whose takeoff cell, is within
+	 * the play radius of it, if any.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void arrived(int x, int y) {
+		Agent a = reserved[blocks.block(x, y)];
+		if (a == null) {
+			return;
+		}
+		int px = a.getX();
+		int py = a.getY();
+		if (distance(x, y, px, py) <= radius) {		// it is still in the space where it took off
+			land(a);
+			return;
+		}
+		for (int k = flown(a); k <= a.flightLength; k++) {
+			if (distance(x, y, wrap(px + k * a.getDirx(), width), wrap(py + k * a.getDiry(), height)) <= radius) {
+				land(a);
+				return;
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Make a cell fit for a birth: land the flight that would come within the play radius of it, if any.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return true if the cell is still empty
+	 */
+	public boolean clear(int x, int y) {
+		arrived(x, y);
+		return space.isEmpty(x, y);
+	}
+
+	/**
+	 * Land a flight now: put the agent where it has got to, catch up its history, and schedule it again. Does nothing if it isn't flying.
+	 * @param a agent to land
+	 */
+	void land(Agent a) {
+		int slot = a.flightSlot;
+		if (slot < 0) {
+			return;
+		}
+		Bag landing = due[(int)((a.flightStart + a.flightLength) % due.length)];
+		int last = landing.numObjs - 1;
+		Agent moved = (Agent)landing.objs[last];
+		landing.objs[slot] = moved;
+		moved.flightSlot = slot;
+		landing.objs[last] = null;
+		landing.numObjs = last;
+		flying--;
+		reserve(a, null);
+		int k = flown(a);
+		a.flightSlot = -1;
+		a.land(wrap(a.getX() + k * a.getDirx(), width), wrap(a.getY() + k * a.getDiry(), height), k, a.flightTurns && k == a.flightLength);
+		sim.scheduleAgent(a);
+		return;
+	}
+
+	/**
+	 * Number of agents in flight.
+	 * @return agents flying
+	 */
+	public int size() {
+		return flying;
+	}
+
+	/**
+	 * Attach the stopper that allows this tracker to be removed from the schedule once every agent has died.
+	 * @param stopper stoppable object returned by schedule when adding a repeating object
+	 */
+	public void attachStopper(Stoppable stopper) {
+		this.stopper = stopper;
+		return;
+	}
+
+	/**
+	 * Land everyone if the play radius or the chance of a random move has changed since the flights were planned; a change of direction
+	 * drawn for the old chance is dropped.
+	 * @return true if the flights are still good
+	 */
+	private boolean checkParams() {
+		if (sim.getPlayRadius() == radius && sim.getProbRandomMove() == probRandomMove) {
+			return true;
+		}
+		for (int i = 0; i < due.length; i++) {
+			while (due[i].numObjs > 0) {
+				Agent a = (Agent)due[i].objs[due[i].numObjs - 1];
+				land(a);
+				a.turnDue = false;
+			}
+		}
+		radius = sim.getPlayRadius();
+		probRandomMove = sim.getProbRandomMove();
+		return false;
+	}
+
+	/**
+	 * Steps of its flight an agent has flown by now.
+	 */
+	private int flown(Agent a) {
+		return (int)Math.min(sim.schedule.getSteps() - a.flightStart, a.flightLength);
+	}
+
+	/**
+	 * Longest flight, up to <i>longest</i> steps, along which an agent that has just taken off has nobody within the play radius and meets
+	 * no other flight. Looks at the agents in the blocks around each point of the path, skipping the agent itself where it took off.
+	 * @return steps it can fly, or -1 if someone is near already
+	 */
+	private int plan(Agent a, int longest) {
+		int ax = a.getX();
+		int ay = a.getY();
+		long window = -1;
+		boolean empty = false;		// nobody else at all in the blocks around the current point?
+		for (int k = 0; k <= longest; k++) {
+			int px = wrap(ax + k * a.getDirx(), width);
+			int py = wrap(ay + k * a.getDiry(), height);
+			long w = window(px, py);
+			if (w != window) {		// the path has moved into a new row or column of blocks
+				window = w;
+				blocks.around(px, py, radius, near);
+				empty = true;
+				for (int i = 0; i < near.numObjs; i++) {
+					int b = near.objs[i];
+					if (reserved[b] != null && reserved[b] != a) {
+						return k - 1;
+					}
+					empty &= blocks.count(b) == 0;
+				}
+			}
+			if (!empty && isCrowded(ax, ay, px, py)) {
+				return k - 1;
+			}
+		}
+		return longest;
+	}
+
+	/**
+	 * Is anyone other than the agent standing on (<i>ax</i>, <i>ay</i>) within the play radius of (<i>px</i>, <i>py</i>)? Looks in the
+	 * blocks last found by {@link OccupiedBlocks#around(int, int, int, IntBag)}.
+	 */
+	private boolean isCrowded(int ax, int ay, int px, int py) {
+		for (int i = 0; i < near.numObjs; i++) {
+			int b = near.objs[i];
+			for (int j = blocks.count(b) - 1; j >= 0; j--) {
+				int c = blocks.cell(b, j);
+				int cx = blocks.x(c);
+				int cy = blocks.y(c);
+				if ((cx != ax || cy != ay) && distance(cx, cy, px, py) <= radius) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Set the owner of every block around every step of a flight's path.
+	 * @param a flying agent, still standing where it took off
+	 * @param owner <i>a</i> to reserve the blocks, null to free them
+	 */
+	private void reserve(Agent a, Agent owner) {
+		long window = -1;
+		for (int k = 0; k <= a.flightLength; k++) {
+			int px = wrap(a.getX() + k * a.getDirx(), width);
+			int py = wrap(a.getY() + k * a.getDiry(), height);
+			long w = window(px, py);
+			if (w == window) {
+				continue;
+			}
+			window = w;
+			blocks.around(px, py, radius, near);
+			for (int i = 0; i < near.numObjs; i++) {
+				reserved[near.objs[i]] = owner;
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Identify the blocks around a cell by the blocks at two opposite corners of the play neighborhood; points of a path with the same
+	 * corners have the same blocks around them.
+	 */
+	private long window(int px, int py) {
+		int first = blocks.block(wrap(px - radius, width), wrap(py - radius, height));
+		int last = blocks.block(wrap(px + radius, width), wrap(py + radius, height));
+		return (long)first * blocks.size() + last;
+	}
+
+	/**
+	 * Chebyshev distance between two cells, wrapping toroidally.
+	 */
+	private int distance(int x1, int y1, int x2, int y2) {
+		int dx = Math.abs(x1 - x2);
+		int dy = Math.abs(y1 - y2);
+		return Math.max(Math.min(dx, width - dx), Math.min(dy, height - dy));
+	}
+
+	private static int wrap(int v, int n) {
+		return v >= 0 ? (v < n ? v : v % n) : (v % n + n) % n;
+	}
+
+}
@@ -0,0 +1,100 @@
+package agents;
+
+/**
+ * Fixed-capacity game history packed into a single <tt>long</tt>. Each round takes four bits: the agent's own action code in the low two
+ * bits and its partner's action code in the high two bits (codes as in {@link StrategyTable}). Round 0 is the most recent game and sits in
+ * the lowest bits; pushing a new round shifts the older ones up and drops anything past {@link #CAPACITY} rounds. Every method is static and
+ * works on the primitive, so reading the last <i>k</i> rounds never allocates.
+ */
+public final class GameHistory {
+
+	public static final int CAPACITY = 16;		// rounds that fit in a long
+	public static final int BITS_PER_ROUND = 4;
+
+	/**
+	 * A history where every round is NOTHING/NOTHING, which is what a new agent remembers.
+	 */
+	public static final long EMPTY = repeat(StrategyTable.NOTHING, StrategyTable.NOTHING);
+
+	private static final int ROUND_MASK = (1 << BITS_PER_ROUND) - 1;
+
+	private GameHistory() {
+	}
+
+	/**
+	 * Add a round to the history, forgetting the oldest one.
+	 * @param history current history
+	 * @param self own action code
+	 * @param other partner's action code
+	 * @return new history
+	 */
+	public static long push(long history, int self, int other) {
+		return history << BITS_PER_ROUND | round(self, other);
+	}
+
+	/**
+	 * Add <i>rounds</i> NOTHING/NOTHING rounds at once, as if {@link #push(long, int, int)} had been called that many times.
+	 * @param history current history
+	 * @param rounds number of rounds with no game
+	 * @return new history
+	 */
+	public static long idle(long history, long rounds) {
+		if (rounds >= CAPACITY) {
+			return EMPTY;
+		}
+		long m = mask((int)rounds);
+		return history << (rounds * BITS_PER_ROUND) & ~m | EMPTY & m;
+	}
+
+	/**
+	 * Own action code <i>k</i> rounds ago (0 is the last game).
+	 * @param history packed history
+	 * @param k rounds back, from 0 to {@link #CAPACITY} - 1
+	 * @return action code
+	 */
+	public static int self(long history, int k) {
+		return (int)(history >>> (k * BITS_PER_ROUND)) & 3;
+	}
+
+	/**
+	 * Partner's action code <i>k</i> rounds ago (0 is the last game).
+	 * @param history packed history
+	 * @param k rounds back, from 0 to {@link #CAPACITY} - 1
+	 * @return action code
+	 */
+	public static int other(long history, int k) {
+		return (int)(history >>> (k * BITS_PER_ROUND + 2)) & 3;
+	}
+
+	/**
+	 * The last <i>k</i> rounds as a packed number, suitable as an index into a table of 2<sup>4k</sup> entries.
+	 * @param history packed history
+	 * @param k number of rounds, from 0 to 7
+	 * @return packed last k rounds
+	 */
+	public static int recent(long history, int k) {
+		return (int)(history & mask(k));
+	}
+
+	/**
+	 * Bit mask covering the last <i>k</i> rounds.
+	 * @param k number of rounds
+	 * @return mask
+	 */
+	public static long mask(int k) {
+		return k >= CAPACITY ? -1L : (1L << (k * BITS_PER_ROUND)) - 1;
+	}
+
+	private static int round(int self, int other) {
+		return (self | other << 2) & ROUND_MASK;
+	}
+
+	private static long repeat(int self, int other) {
+		long h = 0;
+		for (int i = 0; i < CAPACITY; i++) {
+			h = push(h, self, other);
+		}
+		return h;
+	}
+
+}
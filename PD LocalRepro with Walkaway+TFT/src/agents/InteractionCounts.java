@@ -0,0 +1,126 @@
+package agents;
+
+/**
+ * Running totals of the games actually played, broken down by the initiating agent's strategy, its partner's strategy, and the outcome
+ * (the two actions after execution errors). Feeding this from the game itself costs one array increment per game, and assortment (who
+ * meets whom) and per-strategy payoff rates follow directly from the totals without scanning neighborhoods.
+ *
+ * <p>The totals are kept in stripes: independent arrays that each belong to one writer, so several threads can record games without
+ * sharing memory or locking. The single-threaded engines only use stripe 0. {@link #snapshot(long[])} adds the stripes together and must
+ * only be called while nobody is recording, such as from the observer between steps.
+ */
+public final class InteractionCounts {
+
+	public static final int CC = 0;			// both cooperated
+	public static final int CD = 1;			// initiator cooperated, partner defected
+	public static final int DC = 2;			// initiator defected, partner cooperated
+	public static final int DD = 3;			// both defected
+	public static final int OUTCOMES = 4;
+
+	private static final int PADDING = 16;	// spare longs after each stripe so neighboring stripes don't share a cache line
+
+	private final int strategies = Strategy.values().length;
+	private final int size = strategies * strategies * OUTCOMES;
+	private final long[][] stripes;
+
+	/**
+	 * @param nStripes number of independent writers
+	 */
+	public InteractionCounts(int nStripes) {
+		stripes = new long[Math.max(nStripes, 1)][size + PADDING];
+	}
+
+	/**
+	 * Record one game.
+	 * @param stripe writer's stripe, from 0 to {@link #getStripes()} - 1
+	 * @param me initiating agent's strategy
+	 * @param partner partner's strategy
+	 * @param myAction initiator's action code as played (COOPERATE or DEFECT)
+	 * @param partnerAction partner's action code as played (COOPERATE or DEFECT)
+	 */
+	public void record(int stripe, Strategy me, Strategy partner, int myAction, int partnerAction) {
+		stripes[stripe][index(me, partner, outcome(myAction, partnerAction))]++;
+		return;
+	}
+
+	/**
+	 * Record several games with the same players' strategies and outcome.
+	 * @param stripe writer's stripe, from 0 to {@link #getStripes()} - 1
+	 * @param me initiating agents' strategy
+	 * @param partner partners' strategy
+	 * @param myAction initiators' action code as played (COOPERATE or DEFECT)
+	 * @param partnerAction partners' action code as played (COOPERATE or DEFECT)
+	 * @param games number of games
+	 */
+	public void record(int stripe, Strategy me, Strategy partner, int myAction, int partnerAction, long games) {
+		stripes[stripe][index(me, partner, outcome(myAction, partnerAction))] += games;
+		return;
+	}
+
+	/**
+	 * The totals since the start of the run, summed over every stripe.
+	 * @param into array to fill if it is long enough, or null
+	 * @return totals, indexed by {@link #index(Strategy, Strategy, int)}
+	 */
+	public long[] snapshot(long[] into) {
+		if (into == null || into.length < size) {
+			into = new long[size];
+		}
+		System.arraycopy(stripes[0], 0, into, 0, size);
+		for (int s = 1; s < stripes.length; s++) {
+			long[] stripe = stripes[s];
+			for (int i = 0; i < size; i++) {
+				into[i] += stripe[i];
+			}
+		}
+		return into;
+	}
+
+	/**
+	 * Position of a total in a snapshot.
+	 * @param me initiating agent's strategy
+	 * @param partner partner's strategy
+	 * @param outcome {@link #CC}, {@link #CD}, {@link #DC}, or {@link #DD}
+	 * @return index into a snapshot
+	 */
+	public int index(Strategy me, Strategy partner, int outcome) {
+		return (me.ordinal() * strategies + partner.ordinal()) * OUTCOMES + outcome;
+	}
+
+	/**
+	 * Outcome for a pair of action codes.
+	 * @param myAction initiator's action code
+	 * @param partnerAction partner's action code
+	 * @return outcome
+	 */
+	public static int outcome(int myAction, int partnerAction) {
+		return (myAction == StrategyTable.DEFECT ? 2 : 0) + (partnerAction == StrategyTable.DEFECT ? 1 : 0);
+	}
+
+	/**
+	 * Add up one outcome over every strategy pair in a snapshot.
+	 * @param snapshot totals from {@link #snapshot(long[])}
+	 * @param outcome {@link #CC}, {@link #CD}, {@link #DC}, or {@link #DD}
+	 * @return number of games with that outcome
+	 */
+	public long total(long[] snapshot, int outcome) {
+		long sum = 0;
+		for (int i = outcome; i < size; i += OUTCOMES) {
+			sum += snapshot[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Number of values in a snapshot.
+	 * @return snapshot length
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getStripes() {
+		return stripes.length;
+	}
+
+}
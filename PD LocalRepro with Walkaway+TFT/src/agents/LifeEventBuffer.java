@@ -0,0 +1,95 @@
+package agents;
+
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import sim.engine.Stoppable;
+import sim.util.Bag;
+import sim.util.IntBag;
+import simulation.PDWASim;
+
+/**
+ * Births and deaths decided during a step, held back until every agent has stepped. Agents that run out of resources or reach the
+ * reproduction threshold queue themselves here instead of changing the population at once; this is scheduled after the agents and
+ * applies the queue in one pass: every death first, then every birth, in the order they were decided. Nobody is added to or removed from
+ * the schedule or the space while agents are still stepping, and offspring always start in the next step.
+ *
+ * <p>An agent waiting to die is still on the grid for the rest of the step, and one that found no partner in its own turn can still be
+ * picked as someone else's partner and win back some resources; its death is dropped if it no longer has run out by the end of the step.
+ * A queued birth goes ahead on whatever the parent has by then.
+ *
+ * <p>A parent culled by the population cap before its turn in the pass has no offspring, even if an {@link AgentPool} has already brought
+ * its object back as someone else's child.
+ */
+public class LifeEventBuffer implements Steppable {
+
+	private PDWASim sim;
+	private Stoppable stopper;
+	private Bag deaths = new Bag();
+	private Bag births = new Bag();
+	private IntBag birthIds = new IntBag();		// ids of the queued parents, to recognize objects reused by the pool
+
+	public LifeEventBuffer(PDWASim sim) {
+		this.sim = sim;
+	}
+
+	@Override
+	public void step(SimState state) {
+		apply();
+		if (sim.acquireStrategyCounts().total() == 0) {	// nobody left to queue anything
+			stopper.stop();
+		}
+		return;
+	}
+
+	/**
+	 * Queue an agent's death.
+	 * @param a agent that has run out of resources
+	 */
+	void die(Agent a) {
+		deaths.add(a);
+		return;
+	}
+
+	/**
+	 * Queue an agent's reproduction.
+	 * @param a agent that has reached the reproduction threshold
+	 */
+	void reproduce(Agent a) {
+		births.add(a);
+		birthIds.add(a.getId());
+		return;
+	}
+
+	/**
+	 * Carry out everything queued, deaths first, and empty the queues. Agents whose resources have gone back above 0 since their deaths
+	 * were queued live on.
+	 */
+	public void apply() {
+		for (int i = 0; i < deaths.numObjs; i++) {
+			Agent a = (Agent)deaths.objs[i];
+			if (a.getResources() <= 0) {
+				a.remove();
+			}
+		}
+		for (int i = 0; i < births.numObjs; i++) {
+			Agent a = (Agent)births.objs[i];
+			if (a.isAlive() && a.getId() == birthIds.objs[i]) {
+				a.reproduce();
+			}
+		}
+		deaths.clear();
+		births.clear();
+		birthIds.clear();
+		return;
+	}
+
+	/**
+	 * Attach the stopper that allows this buffer to be removed from the schedule once every agent has died.
+	 * @param stopper stoppable object returned by schedule when adding a repeating object
+	 */
+	public void attachStopper(Stoppable stopper) {
+		this.stopper = stopper;
+		return;
+	}
+
+}
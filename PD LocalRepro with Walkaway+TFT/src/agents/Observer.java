@@ -1,39 +1,55 @@
 package agents;
 
+import java.io.PrintStream;
+
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
-import sim.field.grid.SparseGrid2D;
-import sim.util.Bag;
 import simulation.PDWASim;
 
 public class Observer implements Steppable {
 	
-	private int nNaiveC;
-	private int nNaiveD;
-	private int nWalkawayC;
-	private int nWalkawayD;
-	private int nTFTStationary;
-	private int nTFTMobile;
-	private int nPAVLOVStationary;
-	private int nPAVLOVMobile;
-	private int nRealisticTFT;
-	private int nDone;
-	
 	private PDWASim sim;
-	private SparseGrid2D space;
+	private StrategyCounts counts;
+	private boolean tf2t;					// is there an nTF2T column? Only for runs that start with TF2T agents
+	private ClusterTracker clusters;		// null if clusters aren't tracked
+	private PrintStream clusterSizes;		// null if cluster-size snapshots aren't written
+	private int[] distribution;				// scratch for cluster-size snapshots
+	private InteractionCounts interactions;	// null if games aren't counted
+	private long[] games, lastGames;		// interaction totals now and at the previous report
+	private PrintStream pairGames;			// null if snapshots of games by strategy pair aren't written
+	private long[] snapshotGames;			// interaction totals at the previous snapshot
 	private Stoppable stopper;
 	
 	public Observer(PDWASim sim) {
 		this.sim = sim;
-		space = sim.acquireSpace();
+		counts = sim.acquireStrategyCounts();
+		tf2t = sim.getnTF2T() > 0;
+		clusters = sim.acquireClusters();
+		clusterSizes = sim.acquireClusterSizeOutput();
+		interactions = sim.acquireInteractions();
+		if (interactions != null) {
+			games = new long[interactions.size()];
+			lastGames = new long[interactions.size()];
+			pairGames = sim.acquireInteractionOutput();
+			snapshotGames = new long[interactions.size()];
+		}
 		printHeaders();
 	}
 
 	@Override
 	public void step(SimState state) {
-		countAndReset();
 		printDataline();
+		boolean snapshot = sim.schedule.getSteps() % sim.getSnapshotInterval() == 0;
+		if (clusterSizes != null && snapshot) {
+			printClusterSizes();
+		}
+		if (pairGames != null && snapshot) {
+			printPairGames();
+		}
+		if (counts.total() == 0) {	// if there are no more agents, end after this step
+			stopper.stop();
+		}
 		return;
 	}
 	
@@ -47,70 +63,84 @@ public class Observer implements Steppable {
 	}
 	
 	/**
-	 * Reset the counters then count the number of agents of each type into the counters; also resets all agents so they can be played in the next time step.
+	 * Print current line of data from the strategy counts.
+	 */
+	private void printDataline() {
+		long steps = sim.schedule.getSteps();
+		sim.acquireOutput().println(steps + "\t" + counts.get(Strategy.NAIVE_C) + "\t" + counts.get(Strategy.NAIVE_D) + "\t" + counts.get(Strategy.WALKAWAY_C) + "\t" 
+		+ counts.get(Strategy.WALKAWAY_D) + "\t" + counts.get(Strategy.TFT_STATIONARY) + "\t" + counts.get(Strategy.TFT_MOBILE) + "\t" + counts.get(Strategy.PAVLOV_STATIONARY) + "\t" 
+		+ counts.get(Strategy.PAVLOV_MOBILE) + "\t" + counts.get(Strategy.REALISTIC_TFT) + "\t" + counts.get(Strategy.DONE)
+		+ (tf2t ? "\t" + counts.get(Strategy.TF2T) : "")
+		+ (clusters == null ? "" : "\t" + clusters.getClusters() + "\t" + clusters.getLargest() + "\t" + clusters.getLargestFraction())
+		+ (interactions == null ? "" : interactionColumns()));
+		return;
+	}
+	
+	/**
+	 * Print the current cluster-size distribution to the cluster-size snapshot file, one line per size that has clusters.
 	 */
-	private void countAndReset() {
-		nNaiveC = nNaiveD = nWalkawayC = nWalkawayD = nTFTStationary = nTFTMobile = nPAVLOVStationary = nPAVLOVMobile = nRealisticTFT = nDone=0;	// reset counters
-		Bag b = space.allObjects;
-		for (int i = 0; i < b.numObjs; i++) {
-			Agent a = (Agent)b.objs[i];
-			switch (a.getStrategy()) {
-				case NAIVE_C:
-					nNaiveC++;
-					break;
-				case NAIVE_D:
-					nNaiveD++;
-					break;
-				case PAVLOV_MOBILE:
-					nPAVLOVMobile++;
-					break;
-				case PAVLOV_STATIONARY:
-					nPAVLOVStationary++;
-					break;
-				case TFT_MOBILE:
-					nTFTMobile++;
-					break;
-				case TFT_STATIONARY:
-					nTFTStationary++;
-					break;
-				case WALKAWAY_C:
-					nWalkawayC++;
-					break;
-				case WALKAWAY_D:
-					nWalkawayD++;
-					break;
-				case REALISTIC_TFT:
-					nRealisticTFT++;
-					break;
-				case DONE:
-					nDone++;
-					break;
-				default:
-					throw new RuntimeException("Found an agent with an uncountable strategy: " + a.getStrategy());
+	private void printClusterSizes() {
+		long steps = sim.schedule.getSteps();
+		distribution = clusters.sizeDistribution(distribution);
+		for (int size = 1; size < distribution.length; size++) {
+			if (distribution[size] > 0) {
+				clusterSizes.println(steps + "\t" + size + "\t" + distribution[size]);
 			}
-			a.reset();
-		}
-		if (b.numObjs == 0) {	// if there are no more agents, end after this step
-			stopper.stop();
 		}
 		return;
 	}
 	
 	/**
-	 * Print current line of data from the counters.
+	 * Print the games played by each strategy pair since the previous snapshot to the interaction snapshot file, one line per pair that
+	 * played. Uses the totals just taken for the data line.
 	 */
-	private void printDataline() {
+	private void printPairGames() {
 		long steps = sim.schedule.getSteps();
-		System.out.println(steps + "\t" + nNaiveC + "\t" + nNaiveD + "\t" + nWalkawayC + "\t" + nWalkawayD + "\t" + nTFTStationary + "\t" + nTFTMobile + "\t" 
-		+ nPAVLOVStationary + "\t" + nPAVLOVMobile + "\t" + nRealisticTFT+ "\t" + nDone);
+		for (Strategy me : Strategy.values()) {
+			for (Strategy partner : Strategy.values()) {
+				int i = interactions.index(me, partner, InteractionCounts.CC);
+				long cc = games[i + InteractionCounts.CC] - snapshotGames[i + InteractionCounts.CC];
+				long cd = games[i + InteractionCounts.CD] - snapshotGames[i + InteractionCounts.CD];
+				long dc = games[i + InteractionCounts.DC] - snapshotGames[i + InteractionCounts.DC];
+				long dd = games[i + InteractionCounts.DD] - snapshotGames[i + InteractionCounts.DD];
+				if (cc + cd + dc + dd > 0) {
+					pairGames.println(steps + "\t" + me + "\t" + partner + "\t" + cc + "\t" + cd + "\t" + dc + "\t" + dd);
+				}
+			}
+		}
+		System.arraycopy(games, 0, snapshotGames, 0, games.length);
 		return;
 	}
 	
+	/**
+	 * Output columns for the games played since the last report: C/C, C/D (either way round), and D/D.
+	 * @return tab-separated counts, starting with a tab
+	 */
+	private String interactionColumns() {
+		long[] t = lastGames;			// swap buffers so the snapshot allocates nothing
+		lastGames = games;
+		games = interactions.snapshot(t);
+		long cc = interactions.total(games, InteractionCounts.CC) - interactions.total(lastGames, InteractionCounts.CC);
+		long cd = interactions.total(games, InteractionCounts.CD) + interactions.total(games, InteractionCounts.DC)
+				- interactions.total(lastGames, InteractionCounts.CD) - interactions.total(lastGames, InteractionCounts.DC);
+		long dd = interactions.total(games, InteractionCounts.DD) - interactions.total(lastGames, InteractionCounts.DD);
+		return "\t" + cc + "\t" + cd + "\t" + dd;
+	}
+	
 	/**
 	 * Print the data file headers at the beginning of the simulation.
 	 */
 	private void printHeaders() {
-		System.out.println("step\tnNaiveC\tnNaiveD\tnWalkawayC\tnWalkawayD\tnTFTStationary\tnTFTMobile\tnPAVLOVStationary\tnPAVLOVMobile\tnRealisticTFT\tnDone");
+		sim.acquireOutput().println("step\tnNaiveC\tnNaiveD\tnWalkawayC\tnWalkawayD\tnTFTStationary\tnTFTMobile\tnPAVLOVStationary\tnPAVLOVMobile\tnRealisticTFT\tnDone"
+		+ (tf2t ? "\tnTF2T" : "")
+		+ (clusters == null ? "" : "\tnCoopClusters\tlargestCoopCluster\tlargestCoopFraction")
+		+ (interactions == null ? "" : "\tnCC\tnCD\tnDD"));
+		if (clusterSizes != null) {
+			clusterSizes.println("step\tsize\tclusters");
+		}
+		if (pairGames != null) {
+			pairGames.println("step\tinitiator\tpartner\tnCC\tnCD\tnDC\tnDD");
+		}
 		return;
 	}
 	
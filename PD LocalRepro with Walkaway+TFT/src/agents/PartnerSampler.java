@@ -0,0 +1,155 @@
+package agents;
+
+import ec.util.MersenneTwisterFast;
+import sim.field.grid.Grid2D;
+import sim.util.Bag;
+import sim.util.IntBag;
+import simulation.PDWASim;
+import space.AgentSpace;
+import space.OccupiedBlocks;
+
+/**
+ * Picks partners by rejection sampling, so that the cost depends on how many neighbors have already played rather than on the area of the
+ * play neighborhood. The {@link OccupiedBlocks} overlapping the neighborhood hold every agent in it (and some just outside); each trial
+ * draws one of those agents uniformly, choosing a block in proportion to its count and then one of its cells, and accepts it if it is within
+ * the play radius and hasn't played. Every unplayed neighbor is therefore equally likely to be picked. (The neighborhood scan in
+ * {@link Agent} starts at a random place and takes the first unplayed agent after it, which isn't quite uniform, so results differ slightly
+ * as well as in the random numbers drawn.)
+ *
+ * <p>Small neighborhoods are scanned outright, as are neighborhoods where the trials run out, which happens when most of the agents drawn
+ * are out of reach or have already played. The scan picks uniformly from the unplayed neighbors, so mixing the two changes nothing.
+ */
+public final class PartnerSampler {
+
+	public static final int BLOCK_SIDE = 8;
+	private static final int SCAN_AREA = 81;		// neighborhoods this small (radius 4) are cheaper to scan
+	private static final int MAX_TRIALS = 16;
+
+	private final PDWASim sim;
+	private final AgentSpace space;
+	private final OccupiedBlocks blocks;
+	private final int width, height;
+	private final MersenneTwisterFast random;
+	private final IntBag near = new IntBag();	// blocks overlapping the neighborhood
+	private int[] ends = new int[16];			// running total of their counts
+	private final Bag found = new Bag();		// scratch for neighborhood scans
+	private boolean alone;						// did the last pick find nobody at all in the neighborhood?
+
+	/**
+	 * @param sim the simulation
+	 * @param blocks occupied cells by block, kept up to date by the simulation
+	 */
+	public PartnerSampler(PDWASim sim, OccupiedBlocks blocks) {
+		this.sim = sim;
+		this.blocks = blocks;
+		space = sim.acquireAgentSpace();
+		width = space.getWidth();
+		height = space.getHeight();
+		random = sim.random;
+	}
+
+	/**
+	 * Pick an unplayed agent within the play radius, uniformly at random.
+	 * @param a agent looking for a partner
+	 * @return partner, or null if every neighbor has played or there are none
+	 */
+	Agent pick(Agent a) {
+		int radius = sim.getPlayRadius();
+		int x = a.getX();
+		int y = a.getY();
+		int total = blocks.around(x, y, radius, near);
+		if (total <= 1) {		// just ourselves
+			alone = true;
+			return null;
+		}
+		alone = false;
+		if ((long)Math.min(2 * radius + 1, width) * Math.min(2 * radius + 1, height) <= SCAN_AREA) {
+			return scan(x, y, radius);
+		}
+		int n = near.numObjs;
+		if (ends.length < n) {
+			ends = new int[2 * n];
+		}
+		int sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += blocks.count(near.objs[i]);
+			ends[i] = sum;
+		}
+		for (int trial = 0; trial < MAX_TRIALS; trial++) {
+			int k = random.nextInt(total);
+			int i = findBlock(k, n);
+			int cell = blocks.cell(near.objs[i], i == 0 ? k : k - ends[i - 1]);
+			int bx = blocks.x(cell);
+			int by = blocks.y(cell);
+			if (distance(x, y, bx, by) > radius) {
+				continue;
+			}
+			Agent b = (Agent)space.getObjectAt(bx, by);
+			if (b != a && !b.isPlayed()) {
+				return b;
+			}
+		}
+		return scan(x, y, radius);
+	}
+
+	/**
+	 * Did the last {@link #pick(Agent)} find nobody but the agent itself within the play radius? A false answer only means it couldn't
+	 * tell.
+	 * @return true if the agent is certainly alone
+	 */
+	boolean wasAlone() {
+		return alone;
+	}
+
+	/**
+	 * First block whose running total is above <i>k</i>.
+	 */
+	private int findBlock(int k, int n) {
+		int lo = 0;
+		int hi = n - 1;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (ends[mid] > k) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Pick an unplayed agent uniformly from the whole neighborhood.
+	 */
+	private Agent scan(int x, int y, int radius) {
+		Bag neighbors = space.getMooreNeighbors(x, y, radius, Grid2D.TOROIDAL, false, found);
+		alone = neighbors.numObjs == 0;
+		int unplayed = 0;
+		for (int i = 0; i < neighbors.numObjs; i++) {
+			if (!((Agent)neighbors.objs[i]).isPlayed()) {
+				unplayed++;
+			}
+		}
+		if (unplayed == 0) {
+			return null;
+		}
+		int k = random.nextInt(unplayed);
+		for (int i = 0; i < neighbors.numObjs; i++) {
+			Agent b = (Agent)neighbors.objs[i];
+			if (!b.isPlayed() && k-- == 0) {
+				return b;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Chebyshev distance between two cells, wrapping toroidally.
+	 */
+	private int distance(int x1, int y1, int x2, int y2) {
+		int dx = Math.abs(x1 - x2);
+		int dy = Math.abs(y1 - y2);
+		return Math.max(Math.min(dx, width - dx), Math.min(dy, height - dy));
+	}
+
+}
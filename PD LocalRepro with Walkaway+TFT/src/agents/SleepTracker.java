@@ -0,0 +1,153 @@
+package agents;
+
+import sim.field.grid.Grid2D;
+import sim.util.Bag;
+import simulation.PDWASim;
+import space.AgentSpace;
+
+/**
+ * Agents that have nothing to do until someone comes near. An agent with nobody else within the play radius finds no partner, and if its
+ * strategy doesn't move without a partner it stays where it is with its resources unchanged; it will do exactly the same every step until
+ * another agent arrives within the play radius. Such an agent is parked here: its step returns at once instead of searching its
+ * neighborhood, and it is woken when an agent moves or is born within the play radius. On waking it catches up on the empty rounds it
+ * missed, so its history is as if it had stepped all along. Only the random numbers it would have drawn differ. An agent is also woken
+ * whenever it is played as a partner or moved, so nothing ever changes for an agent while it is parked.
+ *
+ * <p>Every parked agent adds one to a watch count on each cell within the play radius of it, so an arrival on a cell nobody watches costs
+ * one array read. Departures need no watching: nobody is within the radius of a parked agent, so nobody can leave it. Changing the play
+ * radius wakes everyone, since the watched areas are no longer right.
+ */
+public final class SleepTracker {
+
+	private final PDWASim sim;
+	private final AgentSpace space;
+	private final int width, height;
+	private final int[] watchers;			// cell -> parked agents within the play radius of it
+	private final Bag parked = new Bag();	// every parked agent; each knows its slot, as in AgentRegistry
+	private final Bag nearby = new Bag();	// scratch for neighborhood queries
+	private int radius;						// play radius the watch counts were made for
+
+	public SleepTracker(PDWASim sim) {
+		this.sim = sim;
+		space = sim.acquireAgentSpace();
+		width = space.getWidth();
+		height = space.getHeight();
+		watchers = new int[width * height];
+		radius = sim.getPlayRadius();
+	}
+
+	/**
+	 * Park an agent that had nobody within the play radius in this step. The neighborhood is looked at again first, since the agent's own
+	 * life events (a child placed next to it) may have changed it since the agent searched; if anyone is there now the agent stays awake.
+	 * @param a agent to park
+	 * @param now current time step
+	 */
+	void park(Agent a, long now) {
+		if (!checkRadius()) {
+			return;
+		}
+		if (space.getMooreNeighbors(a.getX(), a.getY(), radius, Grid2D.TOROIDAL, false, nearby).numObjs > 0) {
+			return;
+		}
+		a.sleepSlot = parked.numObjs;
+		a.sleptStep = now;
+		a.skippedStep = now;
+		parked.add(a);
+		watch(a.getX(), a.getY(), 1);
+		return;
+	}
+
+	/**
+	 * Called by a parked agent when it is stepped; records the skipped step.
+	 * @param a parked agent
+	 * @param now current time step
+	 * @return true if the agent is still parked, false if it has just been woken (because the play radius changed) and should step
+	 */
+	boolean skip(Agent a, long now) {
+		if (!checkRadius()) {
+			return false;
+		}
+		a.skippedStep = now;
+		return true;
+	}
+
+	/**
+	 * An agent has arrived on a cell, by moving or being born. Wakes every parked agent within the play radius of it.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void arrived(int x, int y) {
+		if (watchers[x + y * width] == 0 || !checkRadius()) {
+			return;
+		}
+		Bag near = space.getMooreNeighbors(x, y, radius, Grid2D.TOROIDAL, false, nearby);
+		for (int i = 0; i < near.numObjs; i++) {
+			Agent a = (Agent)near.objs[i];
+			if (a.sleepSlot >= 0) {
+				wake(a);
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Wake a parked agent, catching up its history on the steps it skipped. Does nothing if it isn't parked.
+	 * @param a agent to wake
+	 */
+	void wake(Agent a) {
+		int slot = a.sleepSlot;
+		if (slot < 0) {
+			return;
+		}
+		int last = parked.numObjs - 1;
+		Agent moved = (Agent)parked.objs[last];
+		parked.objs[slot] = moved;
+		moved.sleepSlot = slot;
+		parked.objs[last] = null;
+		parked.numObjs = last;
+		a.sleepSlot = -1;
+		watch(a.getX(), a.getY(), -1);
+		a.catchUp(a.skippedStep - a.sleptStep);
+		return;
+	}
+
+	/**
+	 * Number of parked agents.
+	 * @return agents parked
+	 */
+	public int size() {
+		return parked.numObjs;
+	}
+
+	/**
+	 * Wake everyone if the play radius has changed since the watch counts were made.
+	 * @return true if the watch counts are still good
+	 */
+	private boolean checkRadius() {
+		if (sim.getPlayRadius() == radius) {
+			return true;
+		}
+		while (parked.numObjs > 0) {
+			wake((Agent)parked.objs[parked.numObjs - 1]);
+		}
+		radius = sim.getPlayRadius();
+		return false;
+	}
+
+	/**
+	 * Add <i>delta</i> to the watch count of every cell within the play radius of (<i>cx</i>, <i>cy</i>), wrapping toroidally.
+	 */
+	private void watch(int cx, int cy, int delta) {
+		int spanx = Math.min(2 * radius + 1, width);		// never visit a column or row twice on small grids
+		int spany = Math.min(2 * radius + 1, height);
+		int x0 = ((cx - radius) % width + width) % width;
+		int y0 = ((cy - radius) % height + height) % height;
+		for (int i = 0, nx = x0; i < spanx; i++, nx = nx + 1 == width ? 0 : nx + 1) {
+			for (int j = 0, ny = y0; j < spany; j++, ny = ny + 1 == height ? 0 : ny + 1) {
+				watchers[nx + ny * width] += delta;
+			}
+		}
+		return;
+	}
+
+}
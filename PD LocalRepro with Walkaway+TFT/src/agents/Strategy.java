@@ -1,14 +1,41 @@
 package agents;
 
 public enum Strategy {
-	NAIVE_C,
-	NAIVE_D,
-	WALKAWAY_C,
-	WALKAWAY_D,
-	TFT_STATIONARY,
-	TFT_MOBILE,
-	PAVLOV_STATIONARY,
-	PAVLOV_MOBILE,
-	REALISTIC_TFT,
-	DONE
+	NAIVE_C(0, true),
+	NAIVE_D(0, false),
+	WALKAWAY_C(0, true),
+	WALKAWAY_D(0, false),
+	TFT_STATIONARY(1, true),
+	TFT_MOBILE(1, true),
+	PAVLOV_STATIONARY(1, false),
+	PAVLOV_MOBILE(1, false),
+	REALISTIC_TFT(1, true),
+	DONE(1, false),
+	TF2T(2, true);
+	
+	private final int memory;
+	private final boolean cooperator;
+	
+	private Strategy(int memory, boolean cooperator) {
+		this.memory = memory;
+		this.cooperator = cooperator;
+	}
+	
+	/**
+	 * How many past games this strategy looks at; its compiled table has one entry per possible history of this length (see
+	 * {@link StrategyTable}).
+	 * @return number of remembered games
+	 */
+	public int getMemory() {
+		return memory;
+	}
+	
+	/**
+	 * Is this one of the cooperating strategies (always cooperate, or cooperate unless provoked) whose spatial clusters are tracked by
+	 * {@link ClusterTracker}?
+	 * @return true for cooperators
+	 */
+	public boolean isCooperator() {
+		return cooperator;
+	}
 }
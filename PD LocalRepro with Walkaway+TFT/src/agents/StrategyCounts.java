@@ -0,0 +1,85 @@
+package agents;
+
+/**
+ * Number of living agents with each {@link Strategy}, kept up to date as agents are born and die rather than recounted. Whoever creates or
+ * removes an agent calls {@link #add(Strategy)} or {@link #remove(Strategy)}; readers get single counts or a copy of all of them, so
+ * reporting costs one array read per strategy however many agents there are.
+ */
+public final class StrategyCounts {
+
+	private final int[] counts = new int[Strategy.values().length];		// by strategy ordinal
+	private int total = 0;
+
+	/**
+	 * Record the birth of an agent.
+	 * @param s new agent's strategy
+	 */
+	public void add(Strategy s) {
+		counts[s.ordinal()]++;
+		total++;
+		return;
+	}
+
+	/**
+	 * Record the death of an agent.
+	 * @param s dead agent's strategy
+	 */
+	public void remove(Strategy s) {
+		counts[s.ordinal()]--;
+		total--;
+		return;
+	}
+
+	/**
+	 * Record the births of several agents with the same strategy.
+	 * @param s new agents' strategy
+	 * @param n number of agents
+	 */
+	public void add(Strategy s, int n) {
+		counts[s.ordinal()] += n;
+		total += n;
+		return;
+	}
+
+	/**
+	 * Record the deaths of several agents with the same strategy.
+	 * @param s dead agents' strategy
+	 * @param n number of agents
+	 */
+	public void remove(Strategy s, int n) {
+		counts[s.ordinal()] -= n;
+		total -= n;
+		return;
+	}
+
+	/**
+	 * Number of living agents with a strategy.
+	 * @param s strategy
+	 * @return agents using it
+	 */
+	public int get(Strategy s) {
+		return counts[s.ordinal()];
+	}
+
+	/**
+	 * Number of living agents.
+	 * @return all agents
+	 */
+	public int total() {
+		return total;
+	}
+
+	/**
+	 * Copy every count, indexed by strategy ordinal.
+	 * @param into array to fill, or null to make a new one
+	 * @return the counts
+	 */
+	public int[] snapshot(int[] into) {
+		if (into == null || into.length < counts.length) {
+			into = new int[counts.length];
+		}
+		System.arraycopy(counts, 0, into, 0, counts.length);
+		return into;
+	}
+
+}
@@ -0,0 +1,211 @@
+package agents;
+
+import agents.Agent.Action;
+
+/**
+ * Every {@link Strategy} compiled into an immutable lookup table. A table is indexed by the last {@link Strategy#getMemory()} rounds of the
+ * agent's {@link GameHistory} and whether the agent has moved (see {@link #index(long, int, boolean)}), and each entry is a packed int holding
+ * the action to play and the three movement flags (move if the partner cooperates, defects, or does nothing). The tables are built once when
+ * this class is loaded, so playing a game is a single array read with no allocation and no chains of enum comparisons.
+ *
+ * <p>Actions are coded by their {@link Action} ordinal: {@link #COOPERATE}, {@link #DEFECT}, and {@link #NOTHING}. The movement flag for a
+ * partner action <i>a</i> is stored in bit 2 + <i>a</i>, so {@link #moves(int, int)} is a shift and a mask.
+ */
+public final class StrategyTable {
+
+	public static final int COOPERATE = Action.COOPERATE.ordinal();
+	public static final int DEFECT = Action.DEFECT.ordinal();
+	public static final int NOTHING = Action.NOTHING.ordinal();
+
+	private static final int ACTION_MASK = 3;
+	private static final int MOVE_SHIFT = 2;
+
+	private static final int[][] TABLES = new int[Strategy.values().length][];
+	private static final boolean[] MOVES_ALONE = new boolean[Strategy.values().length];
+
+	static {
+		for (Strategy s : Strategy.values()) {
+			TABLES[s.ordinal()] = compile(s);
+			MOVES_ALONE[s.ordinal()] = compileMovesAlone(s);
+		}
+	}
+
+	private StrategyTable() {
+	}
+
+	/**
+	 * Get the compiled table for a strategy. The returned array must not be modified.
+	 * @param s strategy
+	 * @return lookup table, indexed by {@link #index(long, int, boolean)}
+	 */
+	public static int[] forStrategy(Strategy s) {
+		return TABLES[s.ordinal()];
+	}
+
+	/**
+	 * Table index for the given history.
+	 * @param history this agent's game history
+	 * @param memory number of rounds the strategy looks at
+	 * @param moved has this agent moved?
+	 * @return index into that strategy's table
+	 */
+	public static int index(long history, int memory, boolean moved) {
+		return GameHistory.recent(history, memory) << 1 | (moved ? 1 : 0);
+	}
+
+	/**
+	 * The action code stored in a table entry.
+	 * @param entry packed table entry
+	 * @return action code to play
+	 */
+	public static int action(int entry) {
+		return entry & ACTION_MASK;
+	}
+
+	/**
+	 * Should an agent with this table entry move given its partner's action?
+	 * @param entry packed table entry
+	 * @param partnerAction partner's action code in this game
+	 * @return true if the agent should move
+	 */
+	public static boolean moves(int entry, int partnerAction) {
+		return (entry >>> (MOVE_SHIFT + partnerAction) & 1) != 0;
+	}
+
+	/**
+	 * Does an agent with this strategy move when it finds no partner?
+	 * @param s strategy
+	 * @return true if the agent moves when alone
+	 */
+	public static boolean movesAlone(Strategy s) {
+		return MOVES_ALONE[s.ordinal()];
+	}
+
+	private static int pack(int action, boolean moveCooperate, boolean moveDefect, boolean moveNothing) {
+		int entry = action;
+		if (moveCooperate) {
+			entry |= 1 << (MOVE_SHIFT + COOPERATE);
+		}
+		if (moveDefect) {
+			entry |= 1 << (MOVE_SHIFT + DEFECT);
+		}
+		if (moveNothing) {
+			entry |= 1 << (MOVE_SHIFT + NOTHING);
+		}
+		return entry;
+	}
+
+	/**
+	 * Evaluate the strategy's rule for every history it can see. Histories containing the unused code 3 can't happen and are filled in
+	 * anyway (the rules simply don't match them), which keeps indexing a plain mask.
+	 */
+	private static int[] compile(Strategy s) {
+		int histories = 1 << (s.getMemory() * GameHistory.BITS_PER_ROUND);
+		int[] table = new int[histories << 1];
+		for (int h = 0; h < histories; h++) {
+			table[index(h, s.getMemory(), false)] = rule(s, h, false);
+			table[index(h, s.getMemory(), true)] = rule(s, h, true);
+		}
+		return table;
+	}
+
+	private static boolean compileMovesAlone(Strategy s) {
+		switch (s) {
+			case NAIVE_C:
+			case NAIVE_D:
+			case PAVLOV_MOBILE:
+			case TFT_MOBILE:
+			case WALKAWAY_C:
+			case WALKAWAY_D:
+			case DONE:
+			case REALISTIC_TFT:
+			case TF2T:
+				return true;			// all of the preceding strategies move if no partner is found
+			case PAVLOV_STATIONARY:
+			case TFT_STATIONARY:
+				return false;			// these strategies do nothing if no partner is found
+		}
+		throw new RuntimeException("This strategy has not been implemented: " + s);
+	}
+
+	/**
+	 * The strategy rules themselves: the action and movement options for an agent using strategy <i>s</i> given its recent history and whether
+	 * it has moved. Rules read the history with {@link GameHistory#self(long, int)} and {@link GameHistory#other(long, int)} and must not look
+	 * further back than {@link Strategy#getMemory()} rounds. Only used to build the tables.
+	 */
+	private static int rule(Strategy s, long history, boolean moved) {
+		int self = GameHistory.self(history, 0);
+		int other = GameHistory.other(history, 0);
+		switch (s) {
+			case NAIVE_C:
+				return pack(COOPERATE, false, false, true);
+			case NAIVE_D:
+				return pack(DEFECT, false, false, true);
+			case PAVLOV_MOBILE:
+				if (self == COOPERATE && other == COOPERATE) {
+					return pack(COOPERATE, false, false, true);
+				}
+				if (self == COOPERATE && other == DEFECT) {
+					return pack(DEFECT, false, false, true);
+				}
+				if (self == DEFECT && other == COOPERATE) {
+					return pack(DEFECT, false, false, true);
+				}
+				if (self == DEFECT && other == DEFECT) {
+					return pack(COOPERATE, false, false, true);
+				}		// else there must be a NOTHING in one of the spots, which implies ...
+				return pack(COOPERATE, false, false, true);
+			case PAVLOV_STATIONARY:
+				if (self == COOPERATE && other == COOPERATE) {
+					return pack(COOPERATE, false, false, false);
+				}
+				if (self == COOPERATE && other == DEFECT) {
+					return pack(DEFECT, false, true, false);
+				}
+				if (self == DEFECT && other == COOPERATE) {
+					return pack(DEFECT, false, false, false);
+				}
+				if (self == DEFECT && other == DEFECT) {
+					return pack(COOPERATE, false, false, false);
+				}		// else there must be a NOTHING in one of the spots, which implies ...
+				return pack(COOPERATE, false, false, false);
+			case TFT_MOBILE:
+				if (other == DEFECT) {
+					return pack(DEFECT, false, false, true);
+				}		// COOPERATE and NOTHING both cooperate
+				return pack(COOPERATE, false, false, true);
+			case TFT_STATIONARY:
+				if (other == DEFECT) {
+					return pack(DEFECT, false, false, false);
+				}		// COOPERATE and NOTHING both cooperate
+				return pack(COOPERATE, false, false, false);
+			case WALKAWAY_C:
+				return pack(COOPERATE, false, true, true);
+			case WALKAWAY_D:
+				return pack(DEFECT, false, true, true);
+			case REALISTIC_TFT:
+				if (other == DEFECT) {						// we can just test for DEFECT ...
+					return pack(DEFECT, false, true, true);
+				}
+				return pack(COOPERATE, false, true, true);	// ... because this is the return value for both COOPERATE and NOTHING
+			case DONE:
+				if (self == COOPERATE && other == COOPERATE && !moved) {
+					return pack(COOPERATE, false, false, false);
+				}
+				if (self == COOPERATE && other == DEFECT && moved) {
+					return pack(DEFECT, true, true, true);
+				}
+				if (self == DEFECT) {
+					return pack(DEFECT, true, true, true);
+				}
+				return pack(COOPERATE, false, false, false);
+			case TF2T:
+				if (other == DEFECT && GameHistory.other(history, 1) == DEFECT) {	// only retaliate after two defections in a row ...
+					return pack(DEFECT, false, false, true);
+				}
+				return pack(COOPERATE, false, false, true);							// ... and forgive a single one
+		}
+		throw new RuntimeException("This strategy has not been implemented: " + s);
+	}
+
+}
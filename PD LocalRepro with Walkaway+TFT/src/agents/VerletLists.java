@@ -0,0 +1,292 @@
+package agents;
+
+import java.util.Arrays;
+
+import sim.field.grid.Grid2D;
+import sim.util.Bag;
+import simulation.PDWASim;
+import space.AgentSpace;
+
+/**
+ * Cached partner candidates for each agent, so that a large play radius doesn't mean searching (2 * playRadius + 1)<sup>2</sup> cells every
+ * step. Each agent's list is built around an anchor cell with a reach of playRadius + <i>skin</i>, and kept holding every agent within that
+ * reach of the anchor: agents moving into the reach and agents born in it are added as it happens. While the agent has drifted no more than
+ * <i>skin</i> cells from its anchor, everyone within the play radius of it is on the list, so picking a partner costs the length of the list
+ * rather than the area of the neighborhood. Once it drifts further the list is rebuilt around where it is.
+ *
+ * <p>Agents only ever move one cell at a time, so an agent coming into reach of an anchor arrives on the edge of the reach; each move only
+ * looks at the anchors on the one or two edges it crossed, about 2 * (playRadius + skin) cells. Agents that leave the reach or die are not
+ * taken off lists right away, but dropped the next time the list is used.
+ *
+ * <p>Candidates come in a different order than from the space's neighborhood query, so results differ from a run without lists only in the
+ * random numbers drawn. Grids too small for the reach to fit without wrapping onto itself fall back to the neighborhood query. Changing the
+ * play radius makes every list stale; each is rebuilt the next time it is used.
+ */
+public final class VerletLists {
+
+	private final PDWASim sim;
+	private final AgentSpace space;
+	private final int width, height;
+	private final int skin;
+	private final Cache[] anchored;			// cell -> first list anchored there, linked through the lists
+	private final Bag found = new Bag();	// scratch for neighborhood queries
+	private int reach;						// play radius + skin the lists are built for
+	private boolean usable;					// does the reach fit on the grid?
+	private int epoch = 0;					// lists built for an older reach are stale
+	private long mark = 0;					// stamp for dropping duplicates from a list
+
+	/**
+	 * @param sim the simulation
+	 * @param skin cells an agent may drift from the anchor of its list before the list is rebuilt
+	 */
+	public VerletLists(PDWASim sim, int skin) {
+		this.sim = sim;
+		this.skin = skin;
+		space = sim.acquireAgentSpace();
+		width = space.getWidth();
+		height = space.getHeight();
+		anchored = new Cache[width * height];
+		setReach(sim.getPlayRadius() + skin);
+	}
+
+	/**
+	 * Find an agent's partner candidates: the agent itself first, then every other living agent within the play radius.
+	 * @param a agent looking for a partner
+	 * @param out bag to fill; it is cleared first
+	 * @return <i>out</i>
+	 */
+	Bag candidates(Agent a, Bag out) {
+		checkRadius();
+		int r = sim.getPlayRadius();
+		int x = a.getX();
+		int y = a.getY();
+		if (!usable) {
+			return space.getMooreNeighbors(x, y, r, Grid2D.TOROIDAL, true, out);
+		}
+		Cache c = a.verlet;
+		if (c == null || c.epoch != epoch || distance(c.anchor % width, c.anchor / width, x, y) > skin) {
+			c = rebuild(a);
+		}
+		out.clear();
+		out.add(a);
+		long token = ++mark;
+		a.verletMark = token;
+		int ax = c.anchor % width;
+		int ay = c.anchor / width;
+		Agent[] list = c.agents;
+		int kept = 0;
+		for (int i = 0; i < c.size; i++) {
+			Agent b = list[i];
+			int bx = b.getX();
+			int by = b.getY();
+			if (b.verletMark == token || !b.isAlive() || distance(ax, ay, bx, by) > reach) {
+				continue;		// duplicate, dead, or out of reach: drop it
+			}
+			b.verletMark = token;
+			list[kept++] = b;
+			if (distance(x, y, bx, by) <= r) {
+				out.add(b);
+			}
+		}
+		Arrays.fill(list, kept, c.size, null);
+		c.size = kept;
+		return out;
+	}
+
+	/**
+	 * An agent has moved one cell. Adds it to the lists whose reach it has just entered.
+	 * @param b agent that moved
+	 * @param fromx x-coordinate it moved from
+	 * @param fromy y-coordinate it moved from
+	 * @param tox x-coordinate it moved to
+	 * @param toy y-coordinate it moved to
+	 */
+	void moved(Agent b, int fromx, int fromy, int tox, int toy) {
+		checkRadius();
+		if (!usable) {
+			return;
+		}
+		int dx = step(tox - fromx);
+		int dy = step(toy - fromy);
+		if (dx != 0) {		// the column of anchors just brought into reach
+			int qx = wrap(tox + dx * reach, width);
+			for (int j = -reach; j <= reach; j++) {
+				visit(qx, wrap(toy + j, height), b);
+			}
+		}
+		if (dy != 0) {		// and the row, less any corner the column has covered
+			int qy = wrap(toy + dy * reach, height);
+			for (int i = -reach; i <= reach; i++) {
+				if (dx == 0 || i != dx * reach) {
+					visit(wrap(tox + i, width), qy, b);
+				}
+			}
+		}
+		return;
+	}
+
+	/**
+	 * An agent has been born (or brought back from the pool). Forgets any list it had and adds it to every list it is within reach of.
+	 * @param b new agent, already in the space
+	 */
+	public void born(Agent b) {
+		checkRadius();
+		if (b.verlet != null) {
+			unanchor(b.verlet);
+			b.verlet.epoch = -1;
+		}
+		if (!usable) {
+			return;
+		}
+		for (int i = -reach; i <= reach; i++) {
+			for (int j = -reach; j <= reach; j++) {
+				visit(wrap(b.getX() + i, width), wrap(b.getY() + j, height), b);
+			}
+		}
+		return;
+	}
+
+	/**
+	 * An agent has died. Its own list stops collecting agents; others drop it from theirs when they are next used.
+	 * @param b dead agent
+	 */
+	void died(Agent b) {
+		if (b.verlet != null) {
+			unanchor(b.verlet);
+			b.verlet.epoch = -1;
+		}
+		return;
+	}
+
+	/**
+	 * Build an agent's list from scratch around where it is now.
+	 */
+	private Cache rebuild(Agent a) {
+		Cache c = a.verlet;
+		if (c == null) {
+			c = new Cache(a);
+			a.verlet = c;
+		} else {
+			unanchor(c);
+		}
+		Bag near = space.getMooreNeighbors(a.getX(), a.getY(), reach, Grid2D.TOROIDAL, false, found);
+		if (c.agents.length < near.numObjs) {
+			c.agents = new Agent[Math.max(near.numObjs, 2 * c.agents.length)];
+		} else if (c.size > near.numObjs) {
+			Arrays.fill(c.agents, near.numObjs, c.size, null);
+		}
+		for (int i = 0; i < near.numObjs; i++) {
+			c.agents[i] = (Agent)near.objs[i];
+		}
+		c.size = near.numObjs;
+		c.anchor = a.getX() + a.getY() * width;
+		c.epoch = epoch;
+		c.prev = null;
+		c.next = anchored[c.anchor];
+		if (c.next != null) {
+			c.next.prev = c;
+		}
+		anchored[c.anchor] = c;
+		return c;
+	}
+
+	/**
+	 * Add an agent to every list anchored on a cell, other than its own.
+	 */
+	private void visit(int x, int y, Agent b) {
+		for (Cache c = anchored[x + y * width]; c != null; c = c.next) {
+			if (c.owner != b) {
+				if (c.size == c.agents.length) {
+					c.agents = Arrays.copyOf(c.agents, 2 * c.size);
+				}
+				c.agents[c.size++] = b;
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Take a list off its anchor cell, if it is on one.
+	 */
+	private void unanchor(Cache c) {
+		if (c.epoch != epoch) {
+			return;		// anchors were all cleared when the reach changed
+		}
+		if (c.prev != null) {
+			c.prev.next = c.next;
+		} else {
+			anchored[c.anchor] = c.next;
+		}
+		if (c.next != null) {
+			c.next.prev = c.prev;
+		}
+		c.prev = null;
+		c.next = null;
+		c.epoch = -1;
+		return;
+	}
+
+	/**
+	 * Make every list stale if the play radius has changed since they were built.
+	 */
+	private void checkRadius() {
+		if (sim.getPlayRadius() + skin != reach) {
+			setReach(sim.getPlayRadius() + skin);
+		}
+		return;
+	}
+
+	private void setReach(int reach) {
+		this.reach = reach;
+		usable = 2 * reach + 1 <= width && 2 * reach + 1 <= height;
+		epoch++;
+		Arrays.fill(anchored, null);
+		return;
+	}
+
+	/**
+	 * Chebyshev distance between two cells, wrapping toroidally.
+	 */
+	private int distance(int x1, int y1, int x2, int y2) {
+		int dx = Math.abs(x1 - x2);
+		int dy = Math.abs(y1 - y2);
+		return Math.max(Math.min(dx, width - dx), Math.min(dy, height - dy));
+	}
+
+	/**
+	 * Direction of a one-cell move along one axis, allowing for the wrap.
+	 */
+	private static int step(int d) {
+		if (d > 1) {
+			return -1;
+		}
+		if (d < -1) {
+			return 1;
+		}
+		return d;
+	}
+
+	private static int wrap(int v, int n) {
+		return v >= 0 ? (v < n ? v : v % n) : (v % n + n) % n;
+	}
+
+	/**
+	 * One agent's list: the agents that were within reach of its anchor when it was built, and every agent that has come into reach since.
+	 * May also hold agents that have since left, died, or appear twice, until the list is next used.
+	 */
+	static final class Cache {
+
+		final Agent owner;
+		Agent[] agents = new Agent[8];
+		int size = 0;
+		int anchor;				// cell the list was built around
+		int epoch = -1;			// reach the list was built for; -1 if it must be rebuilt
+		Cache next, prev;		// other lists anchored on the same cell
+
+		Cache(Agent owner) {
+			this.owner = owner;
+		}
+
+	}
+
+}
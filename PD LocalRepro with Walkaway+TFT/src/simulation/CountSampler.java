@@ -0,0 +1,215 @@
+package simulation;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Draws how many of a group of trials or items turn out one way, in one go, for code that keeps agents as counts rather than one by one:
+ * how many of <i>n</i> independent trials succeed (binomial), and how many of a sample drawn without replacement come from one part of a
+ * population (hypergeometric). Each draw inverts the distribution starting at its mode and working outwards, so it takes time in proportion
+ * to the standard deviation rather than to <i>n</i>, and the outcomes have exactly the distribution asked for (up to floating-point
+ * rounding in the probabilities). The smallest draws are made one trial or item at a time instead, which is cheaper than working out a
+ * probability at the mode.
+ */
+public final class CountSampler {
+
+	private static final int TABLE_SIZE = 1024;		// log-factorials below this are looked up, above it approximated
+	private static final double[] LOG_FACTORIAL = new double[TABLE_SIZE];
+	private static final double HALF_LOG_TWO_PI = 0.5 * Math.log(2 * Math.PI);
+	private static final int SMALL_SAMPLE = 8;		// samples and runs of trials this small are drawn one by one
+	private static final double WIDE = 100;			// hypergeometric variance above which rejection beats walking out from the mode
+	private static final double HRUA_A = 1.7155277699214135;	// 2 * sqrt(2 / e)
+	private static final double HRUA_B = 0.8989161620588988;	// 3 - 2 * sqrt(3 / e)
+
+	static {
+		for (int i = 2; i < TABLE_SIZE; i++) {
+			LOG_FACTORIAL[i] = LOG_FACTORIAL[i - 1] + Math.log(i);
+		}
+	}
+
+	private final MersenneTwisterFast random;
+
+	/**
+	 * @param random the simulation's random number generator
+	 */
+	public CountSampler(MersenneTwisterFast random) {
+		this.random = random;
+	}
+
+	/**
+	 * Number of successes in <i>n</i> independent trials that each succeed with probability <i>p</i>.
+	 * @param n number of trials
+	 * @param p chance that each trial succeeds
+	 * @return successes, from 0 to <i>n</i>
+	 */
+	public int binomial(int n, double p) {
+		if (n <= 0 || p <= 0) {
+			return 0;
+		}
+		if (p >= 1) {
+			return n;
+		}
+		if (p > 0.5) {
+			return n - binomial(n, 1 - p);
+		}
+		if (n <= SMALL_SAMPLE) {
+			int found = 0;
+			for (int i = 0; i < n; i++) {
+				if (random.nextBoolean(p)) {
+					found++;
+				}
+			}
+			return found;
+		}
+		double q = 1 - p;
+		int mode = (int)((n + 1) * p);
+		double fMode = Math.exp(logFactorial(n) - logFactorial(mode) - logFactorial(n - mode) + mode * Math.log(p) + (n - mode) * Math.log1p(-p));
+		while (true) {
+			double u = random.nextDouble() - fMode;
+			if (u < 0) {
+				return mode;
+			}
+			double fUp = fMode;
+			double fDown = fMode;
+			int up = mode;
+			int down = mode;
+			while (up < n || down > 0) {		// take probability off the values either side of the mode, nearest first
+				if (up < n) {
+					fUp *= (double)(n - up) / (up + 1) * p / q;
+					up++;
+					u -= fUp;
+					if (u < 0) {
+						return up;
+					}
+				}
+				if (down > 0) {
+					fDown *= (double)down / (n - down + 1) * q / p;
+					down--;
+					u -= fDown;
+					if (u < 0) {
+						return down;
+					}
+				}
+			}
+			// rounding left a sliver of probability unassigned; draw again
+		}
+	}
+
+	/**
+	 * Number of marked items in a sample of <i>draws</i> items taken without replacement from <i>total</i> items, <i>marked</i> of which are
+	 * marked.
+	 * @param draws sample size, from 0 to <i>total</i>
+	 * @param marked marked items, from 0 to <i>total</i>
+	 * @param total population size
+	 * @return marked items drawn
+	 */
+	public int hypergeometric(int draws, int marked, int total) {
+		if (draws <= 0 || marked <= 0) {
+			return 0;
+		}
+		if (draws >= total) {
+			return marked;
+		}
+		if (marked >= total) {
+			return draws;
+		}
+		if (draws > total / 2) {		// the items left behind are the smaller sample
+			return marked - hypergeometric(total - draws, marked, total);
+		}
+		if (marked > total / 2) {
+			return draws - hypergeometric(draws, total - marked, total);
+		}
+		if (draws <= SMALL_SAMPLE) {		// cheaper to draw the items one by one
+			int found = 0;
+			for (int i = 0; i < draws; i++) {
+				if (random.nextInt(total - i) < marked - found) {
+					found++;
+				}
+			}
+			return found;
+		}
+		int unmarked = total - marked;
+		double mean = (double)draws * marked / total;
+		double variance = mean * unmarked / total * (total - draws) / (total - 1.0);
+		if (variance > WIDE) {
+			return hypergeometricWide(draws, marked, total, mean, variance);
+		}
+		int mode = (int)((draws + 1L) * (marked + 1L) / (total + 2L));
+		int least = Math.max(0, draws - unmarked);
+		int most = Math.min(draws, marked);
+		double fMode = Math.exp(logFactorial(marked) - logFactorial(mode) - logFactorial(marked - mode)
+				+ logFactorial(unmarked) - logFactorial(draws - mode) - logFactorial(unmarked - draws + mode)
+				- logFactorial(total) + logFactorial(draws) + logFactorial(total - draws));
+		while (true) {
+			double u = random.nextDouble() - fMode;
+			if (u < 0) {
+				return mode;
+			}
+			double fUp = fMode;
+			double fDown = fMode;
+			int up = mode;
+			int down = mode;
+			while (up < most || down > least) {
+				if (up < most) {
+					fUp *= (double)(marked - up) * (draws - up) / ((up + 1.0) * (unmarked - draws + up + 1.0));
+					up++;
+					u -= fUp;
+					if (u < 0) {
+						return up;
+					}
+				}
+				if (down > least) {
+					fDown *= (double)down * (unmarked - draws + down) / ((marked - down + 1.0) * (draws - down + 1.0));
+					down--;
+					u -= fDown;
+					if (u < 0) {
+						return down;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hypergeometric draw for a spread-out distribution by ratio-of-uniforms rejection (Stadlober's H2PE/HRUA), which takes a few tries
+	 * however wide it is. The sample and the marked items are each at most half the population.
+	 */
+	private int hypergeometricWide(int draws, int marked, int total, double mean, double variance) {
+		int unmarked = total - marked;
+		double center = mean + 0.5;
+		double scale = HRUA_A * Math.sqrt(variance + 0.5) + HRUA_B;
+		int mode = (int)((draws + 1L) * (marked + 1L) / (total + 2L));
+		double logMode = logFactorial(mode) + logFactorial(marked - mode) + logFactorial(draws - mode) + logFactorial(unmarked - draws + mode);
+		double bound = Math.min(Math.min(draws, marked) + 1, Math.floor(center + 16 * Math.sqrt(variance + 0.5)));
+		while (true) {
+			double x = random.nextDouble();
+			double y = random.nextDouble();
+			double w = center + scale * (y - 0.5) / x;
+			if (w < 0 || w >= bound) {
+				continue;
+			}
+			int z = (int)w;
+			double t = logMode - (logFactorial(z) + logFactorial(marked - z) + logFactorial(draws - z) + logFactorial(unmarked - draws + z));
+			if (x * (4 - x) - 3 <= t) {		// quick acceptance
+				return z;
+			}
+			if (x * (x - t) >= 1) {			// quick rejection
+				continue;
+			}
+			if (2 * Math.log(x) <= t) {
+				return z;
+			}
+		}
+	}
+
+	/**
+	 * ln(<i>n</i>!), from a table for small <i>n</i> and Stirling's series otherwise.
+	 */
+	private static double logFactorial(int n) {
+		if (n < TABLE_SIZE) {
+			return LOG_FACTORIAL[n];
+		}
+		double x = n;
+		return x * Math.log(x) - x + 0.5 * Math.log(x) + HALF_LOG_TWO_PI + 1 / (12 * x) - 1 / (360 * x * x * x);
+	}
+
+}
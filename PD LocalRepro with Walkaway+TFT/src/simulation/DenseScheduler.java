@@ -0,0 +1,157 @@
+package simulation;
+
+import ec.util.MersenneTwisterFast;
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import sim.engine.Stoppable;
+
+/**
+ * A scheduler for many steppables that all repeat every step at the same ordering, such as agents. It is itself a single repeating entry
+ * on MASON's schedule, so everything else (the observer, the life event buffer) keeps its own ordering, and MASON's heap only ever holds a
+ * handful of entries. The steppables are kept packed in an array; each step they are put in a fresh random order, one swap per steppable
+ * drawn from the simulation's generator as it goes, and stepped in that order.
+ *
+ * <p>Adding and removing are O(1). Steppables added during a step start stepping in the next one, as with
+ * {@link sim.engine.Schedule#scheduleRepeating(Steppable)}. Steppables removed during a step are not stepped again, and their slots are
+ * reclaimed once the step is over. A run with this scheduler draws random numbers in a different order than one with MASON's, so results
+ * differ (but are just as replicable).
+ */
+public final class DenseScheduler implements Steppable {
+
+	private final MersenneTwisterFast random;
+	private Entry[] entries = new Entry[1024];
+	private int size = 0;
+	private int removed = 0;		// entries stopped during the current step, still holding their slots
+	private boolean stepping = false;
+	private Stoppable stopper;
+
+	/**
+	 * @param random the simulation's random number generator
+	 */
+	public DenseScheduler(MersenneTwisterFast random) {
+		this.random = random;
+	}
+
+	@Override
+	public void step(SimState state) {
+		int n = size;		// anything added from here on waits for the next step
+		stepping = true;
+		for (int i = 0; i < n; i++) {
+			Entry[] e = entries;		// re-read: an add during the step may have moved everything to a bigger array
+			int j = i + random.nextInt(n - i);		// Fisher-Yates, one swap ahead of the steppable being stepped
+			Entry t = e[i];
+			e[i] = e[j];
+			e[j] = t;
+			e[i].slot = i;		// final for this step: later swaps only touch slots after i
+			Steppable s = e[i].steppable;
+			if (s != null) {
+				s.step(state);
+			}
+		}
+		stepping = false;
+		if (removed > 0) {
+			compact();
+		}
+		if (size == 0 && stopper != null) {
+			stopper.stop();
+		}
+		return;
+	}
+
+	/**
+	 * Add a steppable, to be stepped once in every step from the next one on.
+	 * @param s steppable to add
+	 * @return stopper that removes it again
+	 */
+	public Stoppable add(Steppable s) {
+		if (size == entries.length) {
+			Entry[] bigger = new Entry[size * 2];
+			System.arraycopy(entries, 0, bigger, 0, size);
+			entries = bigger;
+		}
+		Entry e = new Entry(s);
+		e.slot = size;
+		entries[size++] = e;
+		return e;
+	}
+
+	/**
+	 * Number of steppables, including any removed during the current step.
+	 * @return steppables
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Attach the stopper that allows this scheduler to be removed from the schedule once it has nothing left to step.
+	 * @param stopper stoppable object returned by schedule when adding a repeating object
+	 */
+	public void attachStopper(Stoppable stopper) {
+		this.stopper = stopper;
+		return;
+	}
+
+	/**
+	 * Take an entry out, moving the last entry into its slot.
+	 */
+	private void remove(Entry e) {
+		int last = --size;
+		Entry moved = entries[last];
+		entries[e.slot] = moved;
+		moved.slot = e.slot;
+		entries[last] = null;
+		return;
+	}
+
+	/**
+	 * Drop the entries stopped during a step and renumber the rest.
+	 */
+	private void compact() {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			Entry e = entries[i];
+			if (e.steppable != null) {
+				e.slot = kept;
+				entries[kept++] = e;
+			}
+		}
+		for (int i = kept; i < size; i++) {
+			entries[i] = null;
+		}
+		size = kept;
+		removed = 0;
+		return;
+	}
+
+	/**
+	 * One steppable's place in the scheduler, and the stopper that frees it.
+	 */
+	private final class Entry implements Stoppable {
+
+		private static final long serialVersionUID = 1L;
+
+		Steppable steppable;		// null once stopped
+		int slot;
+
+		Entry(Steppable steppable) {
+			this.steppable = steppable;
+		}
+
+		@Override
+		public void stop() {
+			if (steppable == null) {
+				return;
+			}
+			steppable = null;
+			if (stepping) {
+				removed++;		// slots are in flux until the step is over
+			} else {
+				remove(this);
+			}
+			return;
+		}
+
+	}
+
+}
@@ -0,0 +1,171 @@
+package simulation;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Binary log of every game played, for building who-played-whom networks offline. Each game is one variable-length record:
+ *
+ * <ol>
+ * <li>a varint holding the steps since the previous record, shifted left 4 bits, with the initiator's action code in bits 2-3 and the
+ * partner's in bits 0-1 (so a game in the same step as the last one usually takes a single byte);</li>
+ * <li>a zigzag varint holding the initiator's id minus the previous record's initiator id;</li>
+ * <li>a zigzag varint holding the partner's id minus the initiator's id.</li>
+ * </ol>
+ *
+ * The file starts with the four bytes <tt>PDEL</tt> and a format version byte. Action codes are those of {@link agents.StrategyTable}, as
+ * actually played (after execution errors). {@link EdgeLogReader} decodes a log.
+ *
+ * <p>Records are encoded into one of a few direct buffers; full buffers are handed to a background thread that writes them to the file
+ * channel while the simulation fills the next one, so the simulation only waits on disk if it gets a whole pool of buffers ahead. Only one
+ * thread may record. A write error in the background is reported by the next {@link #record(long, int, int, int, int)} or by
+ * {@link #close()}.
+ */
+public final class EdgeLog implements Closeable {
+
+	public static final byte[] MAGIC = { 'P', 'D', 'E', 'L' };
+	public static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int BUFFERS = 4;
+	private static final int MAX_RECORD = 10 + 5 + 5;		// longest possible varints for the three fields
+	private static final ByteBuffer END = ByteBuffer.allocate(0);	// tells the writer to stop
+
+	private final WritableByteChannel channel;
+	private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFERS + 1);
+	private final BlockingQueue<ByteBuffer> empty = new ArrayBlockingQueue<>(BUFFERS);
+	private final Thread writer;
+	private volatile IOException failure;
+	private ByteBuffer current;
+	private long lastStep = 0;
+	private int lastId = 0;
+	private boolean closed = false;
+
+	/**
+	 * Create a log file, replacing any file with the same name, and start its writer thread.
+	 * @param fileName path of the log
+	 * @throws IOException if the file can't be created
+	 */
+	public EdgeLog(String fileName) throws IOException {
+		channel = new FileOutputStream(fileName).getChannel();
+		for (int i = 0; i < BUFFERS - 1; i++) {
+			empty.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+		}
+		current = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		current.put(MAGIC).put((byte)VERSION);
+		writer = new Thread(this::drain, "EdgeLog writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Log one game.
+	 * @param step time step in which it was played
+	 * @param id initiating agent's id
+	 * @param partnerId partner's id
+	 * @param myAction initiator's action code as played
+	 * @param partnerAction partner's action code as played
+	 */
+	public void record(long step, int id, int partnerId, int myAction, int partnerAction) {
+		if (current.remaining() < MAX_RECORD) {
+			handOff();
+		}
+		putVarint((step - lastStep) << 4 | myAction << 2 | partnerAction);
+		putVarint(zigzag(id - lastId));
+		putVarint(zigzag(partnerId - id));
+		lastStep = step;
+		lastId = id;
+		return;
+	}
+
+	/**
+	 * Write everything recorded so far, stop the writer thread, and close the file.
+	 * @throws IOException if anything could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			full.put(current);
+			full.put(END);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the edge log", e);
+		} finally {
+			channel.close();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return;
+	}
+
+	/**
+	 * Give the current buffer to the writer and take an empty one, waiting if the writer is behind.
+	 */
+	private void handOff() {
+		if (failure != null) {
+			throw new UncheckedIOException("Could not write the edge log", failure);
+		}
+		try {
+			full.put(current);
+			current = empty.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while writing the edge log", e);
+		}
+		return;
+	}
+
+	/**
+	 * The writer thread: write full buffers to the channel and return them to the pool until told to stop. After a write error, buffers
+	 * are still returned (unwritten) so the simulation never blocks.
+	 */
+	private void drain() {
+		try {
+			while (true) {
+				ByteBuffer b = full.take();
+				if (b == END) {
+					return;
+				}
+				b.flip();
+				try {
+					while (failure == null && b.hasRemaining()) {
+						channel.write(b);
+					}
+				} catch (IOException e) {
+					failure = e;
+				}
+				b.clear();
+				empty.put(b);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return;
+	}
+
+	private void putVarint(long v) {
+		while ((v & ~0x7FL) != 0) {
+			current.put((byte)((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		current.put((byte)v);
+		return;
+	}
+
+	private static long zigzag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+}
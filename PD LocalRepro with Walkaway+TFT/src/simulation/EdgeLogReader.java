@@ -0,0 +1,145 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import agents.Agent.Action;
+
+/**
+ * Reads back a log written by {@link EdgeLog}, one game at a time. After a successful {@link #next()}, the getters describe that game.
+ *
+ * <p>Run from the command line with a log file name to print every game as tab-separated text (step, agent id, partner id, agent's action,
+ * partner's action), for tools that can't read the binary format:
+ *
+ * <pre>java simulation.EdgeLogReader games.edges &gt; games.tsv</pre>
+ */
+public final class EdgeLogReader implements Closeable {
+
+	private final DataInputStream in;
+	private long step = 0;
+	private int id = 0;
+	private int partnerId;
+	private int action, partnerAction;
+
+	/**
+	 * Open a log and check its header.
+	 * @param fileName path of the log
+	 * @throws IOException if the file can't be read or isn't an edge log
+	 */
+	public EdgeLogReader(String fileName) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+		byte[] magic = new byte[EdgeLog.MAGIC.length];
+		try {
+			in.readFully(magic);
+			int version = in.readUnsignedByte();
+			if (!Arrays.equals(magic, EdgeLog.MAGIC) || version != EdgeLog.VERSION) {
+				throw new IOException(fileName + " is not a version " + EdgeLog.VERSION + " edge log");
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java simulation.EdgeLogReader <edge log>");
+			System.exit(1);
+		}
+		Action[] actions = Action.values();
+		PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+		try (EdgeLogReader reader = new EdgeLogReader(args[0])) {
+			while (reader.next()) {
+				out.println(reader.getStep() + "\t" + reader.getId() + "\t" + reader.getPartnerId() + "\t" + actions[reader.getAction()] + "\t"
+						+ actions[reader.getPartnerAction()]);
+			}
+		}
+		out.flush();
+		return;
+	}
+
+	/**
+	 * Read the next game.
+	 * @return false at the end of the log
+	 * @throws IOException if the file can't be read or ends in the middle of a game
+	 */
+	public boolean next() throws IOException {
+		int first = in.read();
+		if (first < 0) {
+			return false;
+		}
+		long head = readVarint(first);
+		step += head >>> 4;
+		action = (int)(head >> 2) & 3;
+		partnerAction = (int)head & 3;
+		id += (int)unzigzag(readVarint(in.readUnsignedByte()));
+		partnerId = id + (int)unzigzag(readVarint(in.readUnsignedByte()));
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+		return;
+	}
+
+	public long getStep() {
+		return step;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getPartnerId() {
+		return partnerId;
+	}
+
+	/**
+	 * Initiating agent's action code as played (see {@link agents.StrategyTable}).
+	 * @return action code
+	 */
+	public int getAction() {
+		return action;
+	}
+
+	/**
+	 * Partner's action code as played (see {@link agents.StrategyTable}).
+	 * @return action code
+	 */
+	public int getPartnerAction() {
+		return partnerAction;
+	}
+
+	/**
+	 * Finish a varint whose first byte has been read.
+	 */
+	private long readVarint(int b) throws IOException {
+		long v = b & 0x7F;
+		int shift = 7;
+		while ((b & 0x80) != 0) {
+			if (shift > 63) {
+				throw new IOException("Corrupt edge log: varint too long");
+			}
+			b = in.read();
+			if (b < 0) {
+				throw new EOFException("Edge log ends in the middle of a game");
+			}
+			v |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		}
+		return v;
+	}
+
+	private static long unzigzag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+}
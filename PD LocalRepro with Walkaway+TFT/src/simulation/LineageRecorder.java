@@ -0,0 +1,295 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Genealogy of every agent: who its parent was, and when it was born and died. Each agent is a row in parallel primitive arrays, kept in
+ * order of id, so a row costs 24 bytes and no objects. Ids must be recorded in increasing order, which holds because both engines number
+ * agents as they are created and every birth is recorded immediately.
+ *
+ * <p>Left alone, the rows grow with the number of births. Two options keep them bounded. Whenever the arrays fill up, the recorder
+ * compacts them:
+ * <ul>
+ * <li>with <i>prune</i>, rows of dead agents that have no living descendants among the rows in memory are dropped, leaving only the
+ * ancestry of the living population;</li>
+ * <li>with a spill file, rows of dead agents that are kept are written to the file and dropped from memory, so memory holds little more
+ * than the living agents.</li>
+ * </ul>
+ * With both, pruning happens before spilling, so a spilled ancestor whose line dies out later stays in the file. {@link #close()} writes
+ * every row still in memory, with {@link #ALIVE} as the death step of agents still living.
+ *
+ * <p>The spill file starts with the four bytes <tt>PDLN</tt> and a format version byte, followed by rows of (int id, int parent id, long
+ * birth step, long death step). Rows are in id order within each compaction but not across the whole file. Run this class with a file
+ * name to print one as tab-separated text.
+ */
+public final class LineageRecorder implements Closeable {
+
+	public static final int NONE = -1;			// parent id of a founder
+	public static final long ALIVE = -1;		// death step of an agent that hasn't died
+	public static final long UNKNOWN = Long.MIN_VALUE;	// birth or death step of an id not in memory
+	public static final byte[] MAGIC = { 'P', 'D', 'L', 'N' };
+	public static final int VERSION = 1;
+
+	private static final int INITIAL_CAPACITY = 1 << 16;
+
+	private final boolean prune;
+	private final DataOutputStream spill;		// null if rows stay in memory
+	private int[] id = new int[INITIAL_CAPACITY];
+	private int[] parent = new int[INITIAL_CAPACITY];
+	private long[] born = new long[INITIAL_CAPACITY];
+	private long[] died = new long[INITIAL_CAPACITY];
+	private boolean[] keep = new boolean[INITIAL_CAPACITY];	// scratch for pruning
+	private int count = 0;
+	private int lastId = Integer.MIN_VALUE;
+	private long spilled = 0;
+
+	/**
+	 * @param prune drop dead lineages when compacting
+	 * @param spillFile file to move finished rows to when compacting, replaced if it exists, or null to keep every row in memory
+	 * @throws IOException if the spill file can't be created
+	 */
+	public LineageRecorder(boolean prune, String spillFile) throws IOException {
+		this.prune = prune;
+		if (spillFile == null) {
+			spill = null;
+		} else {
+			spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), 1 << 16));
+			spill.write(MAGIC);
+			spill.writeByte(VERSION);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java simulation.LineageRecorder <lineage file>");
+			System.exit(1);
+		}
+		PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0]), 1 << 16))) {
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+				throw new IOException(args[0] + " is not a version " + VERSION + " lineage file");
+			}
+			while (true) {
+				int child;
+				try {
+					child = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				out.println(child + "\t" + in.readInt() + "\t" + in.readLong() + "\t" + in.readLong());
+			}
+		}
+		out.flush();
+		return;
+	}
+
+	/**
+	 * Record a birth.
+	 * @param child new agent's id, greater than every id recorded before
+	 * @param parentId parent's id, or {@link #NONE} for an agent created at the start
+	 * @param step time step of the birth
+	 */
+	public void birth(int child, int parentId, long step) {
+		if (child <= lastId) {
+			throw new IllegalArgumentException("Agent " + child + " recorded out of order (after " + lastId + ")");
+		}
+		if (count == id.length) {
+			compact();
+			if (count > id.length / 2) {
+				grow();
+			}
+		}
+		id[count] = child;
+		parent[count] = parentId;
+		born[count] = step;
+		died[count] = ALIVE;
+		count++;
+		lastId = child;
+		return;
+	}
+
+	/**
+	 * Record a death.
+	 * @param agent dead agent's id
+	 * @param step time step of the death
+	 */
+	public void death(int agent, long step) {
+		int row = find(agent);
+		if (row >= 0) {
+			died[row] = step;
+		}
+		return;
+	}
+
+	/**
+	 * Is an agent's row in memory? Rows that were pruned or spilled, and ids never recorded, are not.
+	 * @param agent agent's id
+	 * @return true if the getters below know about the agent
+	 */
+	public boolean contains(int agent) {
+		return find(agent) >= 0;
+	}
+
+	/**
+	 * Get an agent's parent. A founder and an agent whose row is not in memory both answer {@link #NONE}; use {@link #contains(int)} to
+	 * tell them apart.
+	 * @param agent agent's id
+	 * @return parent's id, or {@link #NONE}
+	 */
+	public int getParent(int agent) {
+		int row = find(agent);
+		return row < 0 ? NONE : parent[row];
+	}
+
+	/**
+	 * Get an agent's birth step.
+	 * @param agent agent's id
+	 * @return birth step, or {@link #UNKNOWN} if the agent's row is not in memory
+	 */
+	public long getBirthStep(int agent) {
+		int row = find(agent);
+		return row < 0 ? UNKNOWN : born[row];
+	}
+
+	/**
+	 * Get an agent's death step.
+	 * @param agent agent's id
+	 * @return death step, {@link #ALIVE} if it is still living, or {@link #UNKNOWN} if its row is not in memory
+	 */
+	public long getDeathStep(int agent) {
+		int row = find(agent);
+		return row < 0 ? UNKNOWN : died[row];
+	}
+
+	/**
+	 * Number of rows in memory.
+	 * @return rows
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Number of rows written to the spill file so far.
+	 * @return rows spilled
+	 */
+	public long getSpilled() {
+		return spilled;
+	}
+
+	/**
+	 * Prune if asked to, then write every remaining row to the spill file (if there is one) and close it.
+	 * @throws IOException if the file can't be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (prune) {
+			prune();
+		}
+		if (spill != null) {
+			for (int row = 0; row < count; row++) {
+				writeRow(row);
+			}
+			spill.close();
+		}
+		return;
+	}
+
+	/**
+	 * Drop what can be dropped: dead lineages if pruning, and finished rows if spilling.
+	 */
+	private void compact() {
+		if (prune) {
+			prune();
+		}
+		if (spill == null) {
+			return;
+		}
+		int kept = 0;
+		for (int row = 0; row < count; row++) {
+			if (died[row] == ALIVE) {
+				moveRow(row, kept++);
+			} else {
+				writeRow(row);
+			}
+		}
+		count = kept;
+		return;
+	}
+
+	/**
+	 * Drop every row of a dead agent with no living descendant. Parents always have lower ids than their children, so one pass from the
+	 * newest row back marks each kept row's parent before the parent is reached.
+	 */
+	private void prune() {
+		Arrays.fill(keep, 0, count, false);
+		for (int row = count - 1; row >= 0; row--) {
+			if (died[row] == ALIVE) {
+				keep[row] = true;
+			}
+			if (keep[row] && parent[row] != NONE) {
+				int p = Arrays.binarySearch(id, 0, row, parent[row]);
+				if (p >= 0) {
+					keep[p] = true;
+				}
+			}
+		}
+		int kept = 0;
+		for (int row = 0; row < count; row++) {
+			if (keep[row]) {
+				moveRow(row, kept++);
+			}
+		}
+		count = kept;
+		return;
+	}
+
+	private void writeRow(int row) {
+		try {
+			spill.writeInt(id[row]);
+			spill.writeInt(parent[row]);
+			spill.writeLong(born[row]);
+			spill.writeLong(died[row]);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write the lineage file", e);
+		}
+		spilled++;
+		return;
+	}
+
+	private void moveRow(int from, int to) {
+		id[to] = id[from];
+		parent[to] = parent[from];
+		born[to] = born[from];
+		died[to] = died[from];
+		return;
+	}
+
+	private void grow() {
+		int capacity = id.length * 2;
+		id = Arrays.copyOf(id, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		born = Arrays.copyOf(born, capacity);
+		died = Arrays.copyOf(died, capacity);
+		keep = new boolean[capacity];
+		return;
+	}
+
+	private int find(int agent) {
+		return Arrays.binarySearch(id, 0, count, agent);
+	}
+
+}
@@ -1,21 +1,44 @@
 package simulation;
 
-import java.util.ArrayList;
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 import agents.Agent;
+import agents.AgentPool;
+import agents.AgentRegistry;
+import agents.ArrayEngine;
+import agents.ClusterTracker;
+import agents.CountEngine;
+import agents.FlightTracker;
+import agents.InteractionCounts;
+import agents.LifeEventBuffer;
 import agents.Observer;
+import agents.PartnerSampler;
+import agents.SleepTracker;
 import agents.Strategy;
-import sim.field.grid.Grid2D;
+import agents.StrategyCounts;
+import agents.VerletLists;
 import sim.util.Bag;
-import sim.util.Int2D;
-import sim.util.IntBag;
+import space.AgentSpace;
+import space.OccupiedBlocks;
+import space.DenseAgentSpace;
+import space.FreeCellIndex;
+import space.LocalSampler;
+import space.SparseAgentSpace;
 import states.SimStateSparseGrid2D;
 
 public class PDWASim extends SimStateSparseGrid2D {
 	
+	public static final int ENGINE_AGENTS = 0;		// one Agent object per agent, each on the schedule
+	public static final int ENGINE_ARRAYS = 1;		// all agents in parallel arrays, stepped by one ArrayEngine
+	public static final int ENGINE_COUNTS = 2;		// agents only counted by type and resources, well mixed, stepped by one CountEngine
+	
 	private int gridWidth = 200;
 	private int gridHeight = 200;
 	private int nNaiveC = 100;
@@ -28,14 +51,58 @@ public class PDWASim extends SimStateSparseGrid2D {
 	private int nPAVLOVMobile = 0;
 	private int nRealisticTFT = 0;
 	private int nDone = 100;
+	private int nTF2T = 0;
 	private int playRadius = 1;
 	private double errorRate = 0.001;
 	private double probRandomMove = 1.0;
 	private boolean localReproduction = false;
 	private int reproductionRadius = 1;
 	private boolean enforceCapAfterReproduction = false;
+	private int engine = ENGINE_AGENTS;
+	private int threads = 1;
+	private boolean denseSpace = false;
+	private boolean trackClusters = false;
+	private String clusterSizeFile = "";
+	private int snapshotInterval = 100;
+	private boolean trackInteractions = false;
+	private String interactionFile = "";
+	private boolean deferLifeEvents = false;
+	private boolean poolAgents = false;
+	private boolean denseSchedule = false;
+	private boolean parkIdleAgents = false;
+	private int verletSkin = 0;
+	private boolean samplePartners = false;
+	private boolean ballisticFlights = false;
+	private String edgeLogFile = "";
+	private boolean trackLineage = false;
+	private boolean pruneLineage = false;
+	private String lineageFile = "";
 	
 	private int populationCap;
+	private PrintStream output = System.out;
+	private ArrayEngine arrayEngine;
+	private CountEngine countEngine;
+	private AgentSpace agentSpace;
+	private LocalSampler localSampler;			// reused by every search for an empty cell near a parent
+	private Bag neighborBuffer = new Bag();		// reused by every agent's neighborhood query
+	private StrategyCounts strategyCounts;		// living agents by strategy, updated at every birth and death
+	private AgentRegistry registry;				// every living Agent, for random picks
+	private ClusterTracker clusters;			// cooperator clusters, or null if not tracked
+	private PrintStream clusterSizeOutput;		// cluster-size snapshots, or null if not written
+	private InteractionCounts interactions;		// games played by strategy pair and outcome, or null if not tracked
+	private PrintStream interactionOutput;		// games by strategy pair snapshots, or null if not written
+	private EdgeLog edgeLog;					// every game played, or null if not logged
+	private LineageRecorder lineage;			// parents, births and deaths, or null if not tracked
+	private LifeEventBuffer lifeEvents;			// births and deaths waiting for the end of the step, or null if they happen at once
+	private AgentPool pool;						// dead agents waiting to be reused, or null if agents aren't pooled
+	private VerletLists verletLists;			// agents' cached partner candidates, or null if they search their neighborhood every step
+	private OccupiedBlocks occupiedBlocks;		// occupied cells by block, or null if partners aren't sampled
+	private PartnerSampler partnerSampler;		// picks partners by rejection sampling, or null if agents scan their neighborhood
+	private SleepTracker sleepers;				// agents parked with nobody near, or null if idle agents keep stepping
+	private DenseScheduler agentSchedule;		// steps the agents in place of MASON's schedule, or null if they are on MASON's
+	private FlightTracker flights;				// agents moving in a straight line off the schedule, or null if every agent steps
+	private RareEventSampler errorEvents;		// execution errors in play
+	private RareEventSampler randomMoveEvents;	// random changes of direction
 	
 	public PDWASim(long seed) {
 		super(seed);
@@ -44,112 +111,348 @@ public class PDWASim extends SimStateSparseGrid2D {
 	public void start() {
 		super.start();
 		makeSpace(gridWidth, gridHeight);
+		makeAgentSpace();
+		localSampler = new LocalSampler(gridWidth, gridHeight);
+		strategyCounts = new StrategyCounts();
+		registry = new AgentRegistry();
+		clusters = trackClusters && engine != ENGINE_COUNTS ? new ClusterTracker(gridWidth, gridHeight) : null;
+		clusterSizeOutput = clusters != null && !clusterSizeFile.isEmpty() ? openSnapshots(clusterSizeFile) : null;
+		interactions = trackInteractions ? new InteractionCounts(engine == ENGINE_ARRAYS ? Math.max(threads, 1) : 1) : null;
+		interactionOutput = interactions != null && !interactionFile.isEmpty() ? openSnapshots(interactionFile) : null;
+		edgeLog = edgeLogFile.isEmpty() ? null : openEdgeLog(edgeLogFile);
+		lineage = trackLineage ? openLineage() : null;
+		errorEvents = new RareEventSampler(random);
+		randomMoveEvents = new RareEventSampler(random);
+		arrayEngine = null;
+		countEngine = null;
+		lifeEvents = null;
+		pool = null;
+		agentSchedule = null;
+		flights = null;
+		sleepers = parkIdleAgents && engine == ENGINE_AGENTS ? new SleepTracker(this) : null;
+		verletLists = verletSkin > 0 && !samplePartners && engine == ENGINE_AGENTS ? new VerletLists(this, verletSkin) : null;
+		occupiedBlocks = (samplePartners || isFlying()) && engine == ENGINE_AGENTS ? new OccupiedBlocks(gridWidth, gridHeight, PartnerSampler.BLOCK_SIDE) : null;
+		partnerSampler = samplePartners && occupiedBlocks != null ? new PartnerSampler(this, occupiedBlocks) : null;
+		if (engine == ENGINE_ARRAYS) {
+			makeArrayEngine();
+		} else if (engine == ENGINE_COUNTS) {
+			makeCountEngine();
+		} else {
+			if (denseSchedule) {
+				makeAgentSchedule();
+			}
+			if (deferLifeEvents) {
+				makeLifeEvents();
+			}
+			if (isFlying()) {
+				makeFlights();
+			}
+		}
 		makeAgents();
 		makeObserver();
 		return;
 	}
 	
-	/**
-	 * Make all required agents in the specified quantities. Also sets the population cap to the sum total of the number of initial agents.
-	 */
-	protected void makeAgents() {
-		populationCap = nNaiveC + nNaiveD + nWalkawayC + nWalkawayD + nTFTStationary + nTFTMobile + nPAVLOVStationary + nPAVLOVMobile + nRealisticTFT+nDone;	// we freeze this so it can't be changed while running
-		for (int i = 0; i < nNaiveC; i++) {
-			makeAgent(Strategy.NAIVE_C);
+	@Override
+	public void finish() {
+		super.finish();
+		if (arrayEngine != null) {
+			arrayEngine.shutdown();
 		}
-		for (int i = 0; i < nNaiveD; i++) {
-			makeAgent(Strategy.NAIVE_D);
+		if (edgeLog != null) {
+			try {
+				edgeLog.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				edgeLog = null;
+			}
 		}
-		for (int i = 0; i < nWalkawayC; i++) {
-			makeAgent(Strategy.WALKAWAY_C);
+		if (clusterSizeOutput != null) {
+			clusterSizeOutput.close();
+			clusterSizeOutput = null;
 		}
-		for (int i = 0; i < nWalkawayD; i++) {
-			makeAgent(Strategy.WALKAWAY_D);
+		if (interactionOutput != null) {
+			interactionOutput.close();
+			interactionOutput = null;
 		}
-		for (int i = 0; i < nTFTStationary; i++) {
-			makeAgent(Strategy.TFT_STATIONARY);
+		if (lineage != null) {
+			try {
+				lineage.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				lineage = null;
+			}
 		}
-		for (int i = 0; i < nTFTMobile; i++) {
-			makeAgent(Strategy.TFT_MOBILE);
+		return;
+	}
+	
+	/**
+	 * Open the log of every game for this run.
+	 * @param fileName path of the log, replaced if it exists
+	 * @return the open log
+	 */
+	private static EdgeLog openEdgeLog(String fileName) {
+		try {
+			return new EdgeLog(fileName);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not open edge log " + fileName, e);
 		}
-		for (int i = 0; i < nPAVLOVStationary; i++) {
-			makeAgent(Strategy.PAVLOV_STATIONARY);
+	}
+	
+	/**
+	 * Open a file of snapshots written by the observer every <i>snapshotInterval</i> steps.
+	 * @param fileName path of the file, replaced if it exists
+	 * @return the open stream
+	 */
+	private static PrintStream openSnapshots(String fileName) {
+		try {
+			return new PrintStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16), false);
+		} catch (FileNotFoundException e) {
+			throw new UncheckedIOException("Could not open snapshot file " + fileName, e);
 		}
-		for (int i = 0; i < nPAVLOVMobile; i++) {
-			makeAgent(Strategy.PAVLOV_MOBILE);
+	}
+	
+	/**
+	 * Make the lineage recorder for this run, spilling to <i>lineageFile</i> if one is given.
+	 * @return the recorder
+	 */
+	private LineageRecorder openLineage() {
+		try {
+			return new LineageRecorder(pruneLineage, lineageFile.isEmpty() ? null : lineageFile);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not open lineage file " + lineageFile, e);
 		}
-		for (int i = 0; i < nRealisticTFT; i++) {
-			makeAgent(Strategy.REALISTIC_TFT);
+	}
+	
+	/**
+	 * Make the space agents live in. This is the sparse grid the GUI draws unless a dense space was asked for and there is no GUI to draw it;
+	 * the model never puts two agents in one cell, so either backend works.
+	 */
+	protected void makeAgentSpace() {
+		if (denseSpace && !hasGUI()) {
+			agentSpace = new DenseAgentSpace(gridWidth, gridHeight);
+		} else {
+			agentSpace = new SparseAgentSpace(space, true);
 		}
-		for (int i = 0; i < nDone; i++) {
-			makeAgent(Strategy.DONE);
+		return;
+	}
+	
+	/**
+	 * Make all required agents in the specified quantities. Also sets the population cap to the sum total of the number of initial agents.
+	 */
+	protected void makeAgents() {
+		populationCap = initialPopulation();	// we freeze this so it can't be changed while running
+		if (poolAgents && engine == ENGINE_AGENTS) {
+			pool = new AgentPool(populationCap);
 		}
+		makeAgents(Strategy.NAIVE_C, nNaiveC);
+		makeAgents(Strategy.NAIVE_D, nNaiveD);
+		makeAgents(Strategy.WALKAWAY_C, nWalkawayC);
+		makeAgents(Strategy.WALKAWAY_D, nWalkawayD);
+		makeAgents(Strategy.TFT_STATIONARY, nTFTStationary);
+		makeAgents(Strategy.TFT_MOBILE, nTFTMobile);
+		makeAgents(Strategy.PAVLOV_STATIONARY, nPAVLOVStationary);
+		makeAgents(Strategy.PAVLOV_MOBILE, nPAVLOVMobile);
+		makeAgents(Strategy.REALISTIC_TFT, nRealisticTFT);
+		makeAgents(Strategy.DONE, nDone);
+		makeAgents(Strategy.TF2T, nTF2T);
 		return;
 	}
 	
 	/**
-	 * Make a new agent with the given strategy.
+	 * Make <i>n</i> agents with the given strategy, as objects, in the array engine's storage, or in the count engine's counts depending on
+	 * the engine in use.
 	 * @param strat game strategy
-	 * @return the new agent
+	 * @param n number of agents
+	 */
+	private void makeAgents(Strategy strat, int n) {
+		for (int i = 0; i < n; i++) {
+			int id;
+			if (arrayEngine != null) {
+				int slot = arrayEngine.makeAgent(strat);
+				id = slot < 0 ? LineageRecorder.NONE : arrayEngine.acquireStore().getId(slot);
+			} else if (countEngine != null) {
+				countEngine.makeAgent(strat);
+				id = LineageRecorder.NONE;		// counted agents have no identity to record
+			} else {
+				Agent a = makeAgent(strat);
+				id = a == null ? LineageRecorder.NONE : a.getId();
+			}
+			if (lineage != null && id != LineageRecorder.NONE) {
+				lineage.birth(id, LineageRecorder.NONE, schedule.getSteps());
+			}
+		}
+		return;
+	}
+	
+	/**
+	 * Will lone movers fly in this run? Not while clusters are tracked, since those need every agent's position.
+	 */
+	private boolean isFlying() {
+		return ballisticFlights && !trackClusters;
+	}
+	
+	private int initialPopulation() {
+		return nNaiveC + nNaiveD + nWalkawayC + nWalkawayD + nTFTStationary + nTFTMobile + nPAVLOVStationary + nPAVLOVMobile + nRealisticTFT + nDone + nTF2T;
+	}
+	
+	/**
+	 * Make the array engine and put it on the schedule in place of individual agents.
+	 */
+	protected void makeArrayEngine() {
+		arrayEngine = new ArrayEngine(this, initialPopulation());
+		arrayEngine.attachStopper(schedule.scheduleRepeating(arrayEngine));
+		return;
+	}
+	
+	/**
+	 * Make the count engine and put it on the schedule in place of individual agents.
+	 */
+	protected void makeCountEngine() {
+		countEngine = new CountEngine(this);
+		countEngine.attachStopper(schedule.scheduleRepeating(countEngine));
+		return;
+	}
+	
+	/**
+	 * Make the dense scheduler that steps every agent, as one entry on MASON's schedule at the agents' ordering.
+	 */
+	protected void makeAgentSchedule() {
+		agentSchedule = new DenseScheduler(random);
+		agentSchedule.attachStopper(schedule.scheduleRepeating(agentSchedule));
+		return;
+	}
+	
+	/**
+	 * Make the buffer that holds agents' births and deaths until the end of each step, scheduled after the agents and before the observer.
+	 * The array engine keeps its own queue.
+	 */
+	protected void makeLifeEvents() {
+		lifeEvents = new LifeEventBuffer(this);
+		lifeEvents.attachStopper(schedule.scheduleRepeating(0, 50, lifeEvents));
+		return;
+	}
+	
+	/**
+	 * Make the tracker of agents in flight, scheduled after the agents and the life event buffer so it lands flights once their last step
+	 * is over.
+	 */
+	protected void makeFlights() {
+		flights = new FlightTracker(this, occupiedBlocks);
+		flights.attachStopper(schedule.scheduleRepeating(0, 75, flights));
+		return;
+	}
+	
+	/**
+	 * Make a new agent with the given strategy at a uniformly random empty location, drawn from the space's free-cell index so that this
+	 * takes constant time however full the grid is. A cell that turns out to be in the path of a flight is drawn again.
+	 * @param strat game strategy
+	 * @return the new agent, or null if the grid is full
 	 */
 	public Agent makeAgent(Strategy strat) {
-		int x, y;
-		Bag test;
+		FreeCellIndex free = agentSpace.acquireFreeCells();
+		int cell;
 		do {
-			x = random.nextInt(gridWidth);
-			y = random.nextInt(gridHeight);
-			test = space.getObjectsAtLocation(x, y);
-		} while (test != null && test.numObjs != 0);
-		Agent a = new Agent(this, x, y, strat);
-		RGBTColor col = colorByStrategy(strat);
-		gui.setOvalPortrayal2DColor(a, col.red, col.green, col.blue, col.alpha);
-		a.attachStopper(schedule.scheduleRepeating(a));
-		space.setObjectLocation(a, x, y);
+			cell = free.sample(random);
+			if (cell == FreeCellIndex.NONE) {
+				return null;
+			}
+		} while (flights != null && !flights.clear(free.x(cell), free.y(cell)));
+		int x = free.x(cell);
+		int y = free.y(cell);
+		Agent a = newAgent(x, y, strat);
+		placeAgent(a, x, y, strat);
 		return a;
 	}
 	
 	public Agent makeAgentNear(int x, int y, int radius, Strategy strat) {
-		Int2D location = getEmptyLocationNear(x, y, radius);
-		if (location == null) {									// if there are no empty locations, we return null
+		int cell = getEmptyLocationNear(x, y, radius);
+		if (cell == FreeCellIndex.NONE) {						// if there are no empty locations, we return null
 			return null;
 		}
-		int newx = location.x;
-		int newy = location.y;
-		Agent a = new Agent(this, newx, newy, strat);
-		RGBTColor col = colorByStrategy(strat);
-		gui.setOvalPortrayal2DColor(a, col.red, col.green, col.blue, col.alpha);
-		a.attachStopper(schedule.scheduleRepeating(a));
-		space.setObjectLocation(a, newx, newy);
+		int newx = localSampler.x(cell);
+		int newy = localSampler.y(cell);
+		Agent a = newAgent(newx, newy, strat);
+		placeAgent(a, newx, newy, strat);
+		return a;
+	}
+	
+	/**
+	 * Get an agent object for a birth: a dormant one from the pool if there is one, otherwise a new one.
+	 */
+	private Agent newAgent(int x, int y, Strategy strat) {
+		Agent a = pool == null ? null : pool.take();
+		if (a == null) {
+			return new Agent(this, x, y, strat);
+		}
+		a.rebirth(x, y, strat);
 		return a;
 	}
 	
 	/**
-	 * Returns a random, empty location within <i>radius</i> units of the given (<i>x</i>, <i>y</i>) location, or null if there are no empty locations nearby. Can return the location (<i>x</i>, <i>y</i>) if it
-	 * is empty.
+	 * Put a new agent into the simulation: give it a color (if there is a GUI), schedule it (unless it came from the pool and is still
+	 * scheduled), put it in space, and record it everywhere living agents are tracked.
+	 */
+	private void placeAgent(Agent a, int x, int y, Strategy strat) {
+		if (hasGUI()) {							// portrayals only matter when there is a display; headless runs skip them
+			RGBTColor col = colorByStrategy(strat);
+			gui.setOvalPortrayal2DColor(a, col.red, col.green, col.blue, col.alpha);
+		}
+		if (a.acquireStopper() == null) {
+			scheduleAgent(a);
+		}
+		agentSpace.add(a, x, y);
+		if (sleepers != null) {
+			sleepers.arrived(x, y);
+		}
+		if (flights != null) {
+			flights.arrived(x, y);
+		}
+		if (verletLists != null) {
+			verletLists.born(a);
+		}
+		if (occupiedBlocks != null) {
+			occupiedBlocks.occupy(x, y);
+		}
+		registry.add(a);
+		strategyCounts.add(strat);
+		if (clusters != null && strat.isCooperator()) {
+			clusters.occupy(x, y);
+		}
+		return;
+	}
+	
+	/**
+	 * Put an agent on the schedule to step every time step from the next one on, on the dense scheduler if there is one.
+	 * @param a agent to schedule
+	 */
+	public void scheduleAgent(Agent a) {
+		a.attachStopper(agentSchedule != null ? agentSchedule.add(a) : schedule.scheduleRepeating(a));
+		return;
+	}
+	
+	/**
+	 * Returns a random, empty location within <i>radius</i> units of the given (<i>x</i>, <i>y</i>) location, or {@link FreeCellIndex#NONE} if there are no empty locations nearby. Can return the location
+	 * (<i>x</i>, <i>y</i>) if it is empty. Nearby cells are drawn in random order using the MASON random number generator, so this is replicable, and the search stops at the first empty one without
+	 * allocating anything. Cells in the path of a flight are cleared of it first.
 	 * @param x x-coordinate to look around
 	 * @param y y-coordinate to look around
 	 * @param radius distance from (x, y) to search
-	 * @return random, empty location or null
-	 */
-	public Int2D getEmptyLocationNear(int x, int y, int radius) {
-		Bag test;
-		IntBag xlocs = new IntBag();
-		IntBag ylocs = new IntBag();
-		space.getMooreLocations(x, y, radius, Grid2D.TOROIDAL, true, xlocs, ylocs);
-		int size = xlocs.numObjs;
-		ArrayList<Integer> selector = new ArrayList<>();
-		for (int i = 0; i < size; i++) {
-			selector.add(new Integer(i));
-		}
-		Collections.shuffle(selector);		// NOTE NOTE NOTE! This does not use the MASON random number generator, which means this isn't replicable, but we will let it go for simplicity's sake
-		for (int i = 0; i < size; i++) {			// we step through the now randomly-ordered list of indexes into the available locations and return the first empty one
-			int index = selector.get(i);
-			test = space.getObjectsAtLocation(xlocs.objs[index], ylocs.objs[index]);
-			if (test == null || test.numObjs == 0) {
-				return new Int2D(xlocs.objs[index], ylocs.objs[index]);
+	 * @return random, empty location packed as <i>x</i> + <i>y</i> * gridWidth, or {@link FreeCellIndex#NONE}
+	 */
+	public int getEmptyLocationNear(int x, int y, int radius) {
+		localSampler.start(x, y, radius);
+		while (localSampler.hasNext()) {			// we draw the nearby locations in random order and return the first empty one
+			int cell = localSampler.next(random);
+			int cx = localSampler.x(cell);
+			int cy = localSampler.y(cell);
+			if (agentSpace.isEmpty(cx, cy) && (flights == null || flights.clear(cx, cy))) {
+				return cell;
 			}
 		}
-		return null;		// if we've gotten to this point, there are no empty locations, so we return null
+		return FreeCellIndex.NONE;		// if we've gotten to this point, there are no empty locations
 	}
 	
 	/**
@@ -179,13 +482,16 @@ public class PDWASim extends SimStateSparseGrid2D {
 				return new RGBTColor(1, .5, .5, 1);
 			case DONE:
 				return new RGBTColor(0, 1, 1, 1);
+			case TF2T:
+				return new RGBTColor(.5, .5, 1, 1);
 			default:
 		}
 		return new RGBTColor(0, 1, 1, 1);
 	}
 	
 	/**
-	 * Make the observer for data output (and resetting agents at the end of each time step).
+	 * Make the observer for data output. Agents stamp the step in which they played, so the observer doesn't have to reset anything and
+	 * could be scheduled at any ordering.
 	 */
 	protected void makeObserver() {
 		Observer o = new Observer(this);
@@ -196,6 +502,192 @@ public class PDWASim extends SimStateSparseGrid2D {
 	public int acquirePopulationCap() {
 		return populationCap;
 	}
+	
+	/**
+	 * Get the bag agents collect their neighbors into. There is only one, so its contents are only good until the next agent's query.
+	 * @return shared neighbor buffer
+	 */
+	public Bag acquireNeighborBuffer() {
+		return neighborBuffer;
+	}
+	
+	/**
+	 * Get the registry of living agents (object engine only).
+	 * @return agent registry
+	 */
+	public AgentRegistry acquireRegistry() {
+		return registry;
+	}
+	
+	/**
+	 * Get the cooperator cluster tracker.
+	 * @return cluster tracker, or null if <i>trackClusters</i> is off
+	 */
+	public ClusterTracker acquireClusters() {
+		return clusters;
+	}
+	
+	/**
+	 * Get the stream the observer writes cluster-size snapshots to.
+	 * @return snapshot stream, or null if <i>clusterSizeFile</i> is empty or clusters aren't tracked
+	 */
+	public PrintStream acquireClusterSizeOutput() {
+		return clusterSizeOutput;
+	}
+	
+	/**
+	 * Get the totals of games played by strategy pair and outcome.
+	 * @return interaction counts, or null if <i>trackInteractions</i> is off
+	 */
+	public InteractionCounts acquireInteractions() {
+		return interactions;
+	}
+	
+	/**
+	 * Get the stream the observer writes snapshots of games by strategy pair to.
+	 * @return snapshot stream, or null if <i>interactionFile</i> is empty or games aren't counted
+	 */
+	public PrintStream acquireInteractionOutput() {
+		return interactionOutput;
+	}
+	
+	/**
+	 * Get the log of every game played. It is written until the run finishes.
+	 * @return edge log, or null if <i>edgeLogFile</i> is empty
+	 */
+	public EdgeLog acquireEdgeLog() {
+		return edgeLog;
+	}
+	
+	/**
+	 * Get the genealogy recorder. The agent and array engines record every birth (with the parent) and death in it; the count engine has
+	 * no agents to tell apart and records nothing.
+	 * @return lineage recorder, or null if <i>trackLineage</i> is off
+	 */
+	public LineageRecorder acquireLineage() {
+		return lineage;
+	}
+	
+	/**
+	 * Get the buffer agents queue their births and deaths in (object engine only).
+	 * @return life event buffer, or null if <i>deferLifeEvents</i> is off or another engine is in use
+	 */
+	public LifeEventBuffer acquireLifeEvents() {
+		return lifeEvents;
+	}
+	
+	/**
+	 * Get the tracker of parked agents.
+	 * @return sleep tracker, or null if <i>parkIdleAgents</i> is off or another engine is in use
+	 */
+	public SleepTracker acquireSleepers() {
+		return sleepers;
+	}
+	
+	/**
+	 * Get the tracker of agents in flight.
+	 * @return flight tracker, or null if <i>ballisticFlights</i> is off, clusters are tracked, or another engine is in use
+	 */
+	public FlightTracker acquireFlights() {
+		return flights;
+	}
+	
+	/**
+	 * Get the agents' cached partner candidates.
+	 * @return neighbor lists, or null if <i>verletSkin</i> is 0, partners are sampled, or another engine is in use
+	 */
+	public VerletLists acquireVerletLists() {
+		return verletLists;
+	}
+	
+	/**
+	 * Get the occupied cells of the grid, by block.
+	 * @return occupied blocks, or null if neither partners are sampled nor lone movers fly, or another engine is in use
+	 */
+	public OccupiedBlocks acquireOccupiedBlocks() {
+		return occupiedBlocks;
+	}
+	
+	/**
+	 * Get the sampler agents pick partners with.
+	 * @return partner sampler, or null if <i>samplePartners</i> is off or another engine is in use
+	 */
+	public PartnerSampler acquirePartnerSampler() {
+		return partnerSampler;
+	}
+	
+	/**
+	 * Get the pool of dead agents waiting to be reused (object engine only).
+	 * @return agent pool, or null if <i>poolAgents</i> is off or another engine is in use
+	 */
+	public AgentPool acquirePool() {
+		return pool;
+	}
+	
+	/**
+	 * Get the number of living agents with each strategy. These are kept up to date by every engine, so reading them costs nothing.
+	 * @return strategy counts
+	 */
+	public StrategyCounts acquireStrategyCounts() {
+		return strategyCounts;
+	}
+	
+	/**
+	 * Get the sampler that decides when an action is executed in error (at <i>errorRate</i>).
+	 * @return error sampler
+	 */
+	public RareEventSampler acquireErrorEvents() {
+		return errorEvents;
+	}
+	
+	/**
+	 * Get the sampler that decides when a moving agent picks a new random direction (at <i>probRandomMove</i>).
+	 * @return random move sampler
+	 */
+	public RareEventSampler acquireRandomMoveEvents() {
+		return randomMoveEvents;
+	}
+	
+	/**
+	 * Get the space agents live in; see {@link #isDenseSpace()}.
+	 * @return agent space
+	 */
+	public AgentSpace acquireAgentSpace() {
+		return agentSpace;
+	}
+	
+	/**
+	 * Get the array engine, if this run uses {@link #ENGINE_ARRAYS}.
+	 * @return the array engine or null
+	 */
+	public ArrayEngine acquireArrayEngine() {
+		return arrayEngine;
+	}
+	
+	/**
+	 * Get the count engine, if this run uses {@link #ENGINE_COUNTS}.
+	 * @return the count engine or null
+	 */
+	public CountEngine acquireCountEngine() {
+		return countEngine;
+	}
+	
+	/**
+	 * Get the stream the observer writes its data lines to. This is standard output unless another stream has been attached.
+	 * @return data output stream
+	 */
+	public PrintStream acquireOutput() {
+		return output;
+	}
+	
+	/**
+	 * Set the stream the observer writes its data lines to. Must be called before {@link #start()} so the headers go to the same place.
+	 * @param output data output stream
+	 */
+	public void attachOutput(PrintStream output) {
+		this.output = output;
+		return;
+	}
 
 	public int getGridWidth() {
 		return gridWidth;
@@ -359,4 +851,280 @@ public class PDWASim extends SimStateSparseGrid2D {
 		this.nDone = nDone;
 	}
 
+	/**
+	 * Which engine runs the agents: {@link #ENGINE_AGENTS} (agent objects, viewable in the GUI), {@link #ENGINE_ARRAYS} (parallel
+	 * arrays, for large headless runs), or {@link #ENGINE_COUNTS} (counts by type and resources, for the well-mixed limit: everyone plays
+	 * everyone whatever the play radius, offspring go anywhere, and clusters aren't tracked). Takes effect when the simulation starts.
+	 * @return engine number
+	 */
+	public int getEngine() {
+		return engine;
+	}
+
+	public void setEngine(int engine) {
+		this.engine = engine;
+	}
+
+	public Object domEngine() {
+		return new String[] { "Agents", "Arrays", "Counts" };
+	}
+
+	/**
+	 * Number of threads the array engine steps agents on. With more than one, agents are stepped tile by tile on a checkerboard of the
+	 * grid, which gives the same results for any number of threads but different results from a single thread. Ignored by the other
+	 * engines. Takes effect when the simulation starts.
+	 * @return threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Do agents live in a dense array grid instead of MASON's sparse (hash-based) grid? Dense lookups are much faster on crowded grids, but
+	 * the GUI can only draw the sparse grid, so this is ignored when the GUI is running. Takes effect when the simulation starts.
+	 * @return true for a dense space
+	 */
+	public boolean isDenseSpace() {
+		return denseSpace;
+	}
+
+	public void setDenseSpace(boolean denseSpace) {
+		this.denseSpace = denseSpace;
+	}
+
+	/**
+	 * Track clusters of neighboring cooperators as agents move, are born, and die, and report their number and the size of the largest one
+	 * in extra output columns. The clusters are relinked for each report when a cooperator has left a cell since the last one, which costs
+	 * time in proportion to the number of cooperators. Takes effect when the simulation starts.
+	 * @return true if cooperator clusters are tracked
+	 */
+	public boolean isTrackClusters() {
+		return trackClusters;
+	}
+
+	public void setTrackClusters(boolean trackClusters) {
+		this.trackClusters = trackClusters;
+	}
+
+	/**
+	 * File the cooperator cluster-size distribution is written to every <i>snapshotInterval</i> steps, as tab-separated lines of step, cluster
+	 * size, and the number of clusters of that size (sizes with no clusters are left out). Empty for none; only written while clusters are
+	 * tracked. Each snapshot looks at every cooperator. Takes effect when the simulation starts.
+	 * @return path of the file, or empty
+	 */
+	public String getClusterSizeFile() {
+		return clusterSizeFile;
+	}
+
+	public void setClusterSizeFile(String clusterSizeFile) {
+		this.clusterSizeFile = clusterSizeFile == null ? "" : clusterSizeFile.trim();
+	}
+
+	/**
+	 * Steps between the snapshots written to the optional snapshot files (see <i>clusterSizeFile</i> and <i>interactionFile</i>), starting at
+	 * step 0.
+	 * @return steps between snapshots
+	 */
+	public int getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	public void setSnapshotInterval(int snapshotInterval) {
+		this.snapshotInterval = Math.max(1, snapshotInterval);
+	}
+
+	/**
+	 * Count every game played by the strategies of both players and the outcome, and report how many games ended C/C, C/D (either way
+	 * round), and D/D in each step in extra output columns. Takes effect when the simulation starts.
+	 * @return true if games are counted
+	 */
+	public boolean isTrackInteractions() {
+		return trackInteractions;
+	}
+
+	public void setTrackInteractions(boolean trackInteractions) {
+		this.trackInteractions = trackInteractions;
+	}
+
+	/**
+	 * File the games played by each strategy pair are written to every <i>snapshotInterval</i> steps, as tab-separated lines of step,
+	 * initiator's strategy, partner's strategy, and the C/C, C/D, D/C and D/D games between them since the previous snapshot (pairs that
+	 * played no games are left out). Empty for none; only written while games are counted. Takes effect when the simulation starts.
+	 * @return path of the file, or empty
+	 */
+	public String getInteractionFile() {
+		return interactionFile;
+	}
+
+	public void setInteractionFile(String interactionFile) {
+		this.interactionFile = interactionFile == null ? "" : interactionFile.trim();
+	}
+
+	/**
+	 * File every game is logged to as it is played, in the compact binary format of {@link EdgeLog}, for building who-played-whom networks
+	 * offline. Empty for none. Not written by the count engine. Takes effect when the simulation starts.
+	 * @return path of the log, or empty
+	 */
+	public String getEdgeLogFile() {
+		return edgeLogFile;
+	}
+
+	public void setEdgeLogFile(String edgeLogFile) {
+		this.edgeLogFile = edgeLogFile == null ? "" : edgeLogFile.trim();
+	}
+
+	/**
+	 * Hold births and deaths back until every agent has stepped, and apply them together at the end of the step (see
+	 * {@link LifeEventBuffer}), instead of changing the population in the middle of the step. Only used by the agent engine. Takes effect
+	 * when the simulation starts.
+	 * @return true if life events are deferred
+	 */
+	public boolean isDeferLifeEvents() {
+		return deferLifeEvents;
+	}
+
+	public void setDeferLifeEvents(boolean deferLifeEvents) {
+		this.deferLifeEvents = deferLifeEvents;
+	}
+
+	/**
+	 * Keep dead agents for reuse by later births instead of allocating new ones (see {@link AgentPool}). Results differ from a run without
+	 * the pool only in the random numbers drawn. Only used by the agent engine. Takes effect when the simulation starts.
+	 * @return true if agents are pooled
+	 */
+	public boolean isPoolAgents() {
+		return poolAgents;
+	}
+
+	public void setPoolAgents(boolean poolAgents) {
+		this.poolAgents = poolAgents;
+	}
+
+	/**
+	 * Step agent objects with a {@link DenseScheduler} instead of putting each one on MASON's schedule. Only used by the agent engine. Takes
+	 * effect when the simulation starts.
+	 * @return true if agents are on a dense scheduler
+	 */
+	public boolean isDenseSchedule() {
+		return denseSchedule;
+	}
+
+	public void setDenseSchedule(boolean denseSchedule) {
+		this.denseSchedule = denseSchedule;
+	}
+
+	/**
+	 * Park agents that have nobody within the play radius and don't move on their own, until another agent moves or is born near them.
+	 * Saves their neighborhood searches; results differ from a run without parking only in the random numbers drawn. Ignored by the array
+	 * engine. Takes effect when the simulation starts.
+	 * @return true if idle agents are parked
+	 */
+	public boolean isParkIdleAgents() {
+		return parkIdleAgents;
+	}
+
+	public void setParkIdleAgents(boolean parkIdleAgents) {
+		this.parkIdleAgents = parkIdleAgents;
+	}
+
+	/**
+	 * Cells an agent may drift before its cached list of partner candidates is rebuilt, or 0 to search the neighborhood every step instead
+	 * of keeping lists (see {@link VerletLists}). Larger skins mean fewer rebuilds but longer lists; lists pay off at play radii above 1.
+	 * Only used by the agent engine. Takes effect when the simulation starts.
+	 * @return skin in cells
+	 */
+	public int getVerletSkin() {
+		return verletSkin;
+	}
+
+	public void setVerletSkin(int verletSkin) {
+		this.verletSkin = verletSkin;
+	}
+
+	/**
+	 * Pick partners by rejection sampling from the agents in the blocks around an agent (see {@link PartnerSampler}), so the cost stays
+	 * about the same however large the play radius is. Neighbor lists aren't kept while this is on. Only used by the agent engine. Takes effect when the
+	 * simulation starts.
+	 * @return true if partners are sampled
+	 */
+	public boolean isSamplePartners() {
+		return samplePartners;
+	}
+
+	public void setSamplePartners(boolean samplePartners) {
+		this.samplePartners = samplePartners;
+	}
+
+	/**
+	 * Take agents that move on their own and have nobody within the play radius off the schedule, and move them in a straight line without
+	 * stepping them until someone comes near or they are due a random change of direction (see {@link FlightTracker}). Pays off in sparse
+	 * runs with a small <i>probRandomMove</i>; results differ from a run without flights only in the random numbers drawn. Not used while
+	 * clusters are tracked. Only used by the agent engine. Takes effect when the simulation starts.
+	 * @return true if lone movers fly
+	 */
+	public boolean isBallisticFlights() {
+		return ballisticFlights;
+	}
+
+	public void setBallisticFlights(boolean ballisticFlights) {
+		this.ballisticFlights = ballisticFlights;
+	}
+
+	/**
+	 * Record the parent, birth step, and death step of every agent (see {@link LineageRecorder}). Not recorded by the count engine. Takes
+	 * effect when the simulation starts.
+	 * @return true if lineage is recorded
+	 */
+	public boolean isTrackLineage() {
+		return trackLineage;
+	}
+
+	public void setTrackLineage(boolean trackLineage) {
+		this.trackLineage = trackLineage;
+	}
+
+	/**
+	 * Drop the lineage of dead agents with no living descendants whenever the recorder compacts its rows, so only the ancestry of the
+	 * living population is kept. Only used while lineage is recorded. Takes effect when the simulation starts.
+	 * @return true if dead lineages are pruned
+	 */
+	public boolean isPruneLineage() {
+		return pruneLineage;
+	}
+
+	public void setPruneLineage(boolean pruneLineage) {
+		this.pruneLineage = pruneLineage;
+	}
+
+	/**
+	 * File the rows of dead agents are spilled to whenever the lineage recorder compacts its rows, and every remaining row when the run
+	 * finishes, so memory holds little more than the living agents. Empty to keep every row in memory. Only used while lineage is recorded.
+	 * Takes effect when the simulation starts.
+	 * @return path of the file, or empty
+	 */
+	public String getLineageFile() {
+		return lineageFile;
+	}
+
+	public void setLineageFile(String lineageFile) {
+		this.lineageFile = lineageFile == null ? "" : lineageFile.trim();
+	}
+
+	/**
+	 * Number of TF2T (tit for two tats) agents at the start. The output only has an nTF2T column when this is above 0, so runs without
+	 * them keep the original columns.
+	 * @return initial TF2T agents
+	 */
+	public int getnTF2T() {
+		return nTF2T;
+	}
+
+	public void setnTF2T(int nTF2T) {
+		this.nTF2T = nTF2T;
+	}
+
 }
@@ -0,0 +1,169 @@
+package simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+/**
+ * Headless entry point for {@link PDWASim}. Builds the simulation from a parameter file, runs it for a fixed number of steps (or until the
+ * observer stops it), and writes the observer's data lines to a file or standard output. No GUI objects are ever created.
+ *
+ * <p>The parameter file is a standard Java properties file. Every key other than the reserved ones below is matched to a setter on
+ * {@link PDWASim} (so <tt>gridWidth=500</tt> calls <tt>setGridWidth(500)</tt>).
+ * The reserved keys are <tt>seed</tt> (default: current time), <tt>steps</tt> (default: 1000), and <tt>output</tt> (default: standard
+ * output). Usage:
+ *
+ * <tt><pre>
+ * java simulation.PDWASimBatch params.properties [steps] [seed] [output]
+ * </pre></tt>
+ *
+ * Command line values override the ones in the file.
+ */
+public class PDWASimBatch {
+
+	public static final String SEED = "seed";
+	public static final String STEPS = "steps";
+	public static final String OUTPUT = "output";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: java simulation.PDWASimBatch <parameter file> [steps] [seed] [output]");
+			System.exit(1);
+		}
+		Properties params = load(args[0]);
+		if (args.length > 1) {
+			params.setProperty(STEPS, args[1]);
+		}
+		if (args.length > 2) {
+			params.setProperty(SEED, args[2]);
+		}
+		if (args.length > 3) {
+			params.setProperty(OUTPUT, args[3]);
+		}
+		long steps = Long.parseLong(params.getProperty(STEPS, "1000"));
+		PrintStream out = openOutput(params.getProperty(OUTPUT));
+		try {
+			PDWASim sim = make(params);
+			sim.attachOutput(out);
+			run(sim, steps);
+		} finally {
+			if (out != System.out) {
+				out.close();
+			}
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Read a parameter file.
+	 * @param fileName path to a Java properties file
+	 * @return parameters read from the file
+	 * @throws IOException if the file can't be read
+	 */
+	public static Properties load(String fileName) throws IOException {
+		Properties params = new Properties();
+		try (InputStream in = new FileInputStream(fileName)) {
+			params.load(in);
+		}
+		return params;
+	}
+
+	/**
+	 * Make a new simulation from the given parameters. The simulation is not started; attach an output stream (if needed) and pass it to
+	 * {@link #run(PDWASim, long)}.
+	 * @param params simulation parameters, keyed by property name
+	 * @return the new simulation
+	 */
+	public static PDWASim make(Properties params) {
+		long seed = Long.parseLong(params.getProperty(SEED, Long.toString(System.currentTimeMillis())));
+		PDWASim sim = new PDWASim(seed);
+		applyParameters(sim, params);
+		return sim;
+	}
+
+	/**
+	 * Start the simulation and step it until <i>steps</i> steps have been run or there is nothing left on the schedule, then finish it.
+	 * @param sim simulation to run; must not have been started
+	 * @param steps maximum number of steps to run
+	 * @return the number of steps actually run
+	 */
+	public static long run(PDWASim sim, long steps) {
+		sim.start();
+		while (sim.schedule.getSteps() < steps) {
+			if (!sim.schedule.step(sim)) {		// schedule is empty, so everything has stopped
+				break;
+			}
+		}
+		sim.finish();
+		return sim.schedule.getSteps();
+	}
+
+	/**
+	 * Call the matching setter on the simulation for every non-reserved parameter. Setters are found by name, trying both
+	 * <tt>set</tt> + <i>key</i> and <tt>set</tt> + <i>Key</i> so that MASON-style names that keep a lower-case first letter work.
+	 * @param sim simulation to configure
+	 * @param params parameters, keyed by property name
+	 */
+	private static void applyParameters(Object sim, Properties params) {
+		for (String key : params.stringPropertyNames()) {
+			if (key.equals(SEED) || key.equals(STEPS) || key.equals(OUTPUT)) {
+				continue;
+			}
+			String value = params.getProperty(key).trim();
+			Method setter = findSetter(sim.getClass(), key);
+			if (setter == null) {
+				throw new IllegalArgumentException("No parameter named " + key + " in " + sim.getClass().getSimpleName());
+			}
+			try {
+				setter.invoke(sim, parse(setter.getParameterTypes()[0], value));
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				throw new IllegalArgumentException("Could not set parameter " + key + " to " + value, e);
+			}
+		}
+		return;
+	}
+
+	private static Method findSetter(Class<?> c, String key) {
+		String capitalized = Character.toUpperCase(key.charAt(0)) + key.substring(1);
+		for (Method m : c.getMethods()) {
+			if (m.getParameterTypes().length == 1 && (m.getName().equals("set" + key) || m.getName().equals("set" + capitalized))) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+	private static Object parse(Class<?> type, String value) {
+		if (type == int.class) {
+			return Integer.parseInt(value);
+		}
+		if (type == long.class) {
+			return Long.parseLong(value);
+		}
+		if (type == double.class) {
+			return Double.parseDouble(value);
+		}
+		if (type == boolean.class) {
+			return Boolean.parseBoolean(value);
+		}
+		if (type == String.class) {
+			return value;
+		}
+		throw new IllegalArgumentException("Can't set a parameter of type " + type.getSimpleName() + " from a parameter file");
+	}
+
+	private static PrintStream openOutput(String fileName) throws FileNotFoundException {
+		if (fileName == null || fileName.isEmpty()) {
+			return System.out;
+		}
+		return new PrintStream(new BufferedOutputStream(new FileOutputStream(fileName)), false);
+	}
+
+}
@@ -0,0 +1,73 @@
+package simulation;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Decides a long sequence of independent yes/no trials that each succeed with a small probability <i>p</i>, such as whether an action is
+ * executed in error. Instead of drawing a random number for every trial, it draws the number of failures before the next success from the
+ * geometric distribution and counts it down, so with <i>p</i> = 0.001 it uses about one random number per thousand trials. The outcomes
+ * have exactly the same distribution as calling {@link MersenneTwisterFast#nextBoolean(double)} each time.
+ *
+ * <p>Skipping only pays when events are rare (a geometric draw costs a logarithm), so at or above {@link #SKIP_THRESHOLD} every trial
+ * simply calls <tt>nextBoolean</tt>. The probability is passed on each trial so that a value changed from the inspector during a run takes
+ * effect immediately; a change throws away the pending gap and draws a new one, which the geometric distribution's lack of memory allows.
+ */
+public final class RareEventSampler {
+
+	public static final double SKIP_THRESHOLD = 0.1;	// below this probability, skip ahead instead of drawing every trial
+
+	private final MersenneTwisterFast random;
+	private double p = Double.NaN;			// probability the current gap was drawn for
+	private long gap;						// failures left before the next success
+
+	/**
+	 * @param random the simulation's random number generator
+	 */
+	public RareEventSampler(MersenneTwisterFast random) {
+		this.random = random;
+	}
+
+	/**
+	 * Run one trial.
+	 * @param probability chance that this trial succeeds
+	 * @return true if the event happens
+	 */
+	public boolean next(double probability) {
+		if (probability >= SKIP_THRESHOLD) {
+			return random.nextBoolean(probability);
+		}
+		if (probability != p) {
+			p = probability;
+			gap = drawGap(p);
+		}
+		if (gap > 0) {
+			gap--;
+			return false;
+		}
+		gap = drawGap(p);
+		return true;
+	}
+
+	/**
+	 * Draw the number of failures before the next success for a run of trials kept apart from this sampler's, such as the steps one agent
+	 * is skipped over. The pending gap is left alone.
+	 * @param probability chance that each trial succeeds
+	 * @return failures before the next success, or <tt>Long.MAX_VALUE</tt> if the probability is 0
+	 */
+	public long failures(double probability) {
+		return drawGap(probability);
+	}
+
+	/**
+	 * Number of failures before the next success: floor(ln U / ln(1 - p)) for U uniform in (0, 1].
+	 */
+	private long drawGap(double p) {
+		if (p <= 0) {
+			return Long.MAX_VALUE;
+		}
+		double u = 1.0 - random.nextDouble();
+		double g = Math.floor(Math.log(u) / Math.log1p(-p));
+		return g >= Long.MAX_VALUE ? Long.MAX_VALUE : (long)g;
+	}
+
+}
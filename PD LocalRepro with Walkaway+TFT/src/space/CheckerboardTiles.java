@@ -0,0 +1,133 @@
+package space;
+
+/**
+ * A toroidal grid cut into rectangular tiles and coloured like a checkerboard with four colours, so that tiles of one colour can be
+ * worked on at the same time. The number of tiles across and down is even, which keeps the colouring consistent across the wrap, and
+ * every tile is at least <i>minSide</i> cells on a side. Two different tiles of the same colour therefore always have a whole tile of
+ * another colour between them, and no cell of one is within <i>minSide</i> cells (Chebyshev distance) of a cell of the other.
+ *
+ * <p>Tiles are numbered <i>column</i> + <i>row</i> * {@link #getTilesX()}; the colour of a tile is (<i>column</i> mod 2) + 2 * (<i>row</i>
+ * mod 2).
+ */
+public final class CheckerboardTiles {
+
+	public static final int COLOURS = 4;
+
+	private final int tilesX, tilesY;
+	private final int[] columnTile;			// x -> tile column
+	private final int[] rowTile;			// y -> tile row
+	private final int[][] byColour;			// colour -> its tiles, in increasing order
+
+	/**
+	 * Tile a grid with tiles close to <i>preferredSide</i> cells on a side, and never less than <i>minSide</i>. Check {@link #fits(int,
+	 * int, int)} first.
+	 * @param width grid width
+	 * @param height grid height
+	 * @param minSide smallest allowed tile side
+	 * @param preferredSide tile side to aim for; larger tiles mean fewer of them
+	 */
+	public CheckerboardTiles(int width, int height, int minSide, int preferredSide) {
+		if (!fits(width, height, minSide)) {
+			throw new IllegalArgumentException("A " + width + "x" + height + " grid can't hold 2x2 tiles of side " + minSide);
+		}
+		tilesX = count(width, Math.max(minSide, preferredSide), minSide);
+		tilesY = count(height, Math.max(minSide, preferredSide), minSide);
+		columnTile = bands(width, tilesX);
+		rowTile = bands(height, tilesY);
+		int[] perColour = new int[COLOURS];
+		for (int t = 0; t < size(); t++) {
+			perColour[colour(t)]++;
+		}
+		byColour = new int[COLOURS][];
+		for (int c = 0; c < COLOURS; c++) {
+			byColour[c] = new int[perColour[c]];
+			perColour[c] = 0;
+		}
+		for (int t = 0; t < size(); t++) {
+			int c = colour(t);
+			byColour[c][perColour[c]++] = t;
+		}
+	}
+
+	/**
+	 * Can a grid be cut into at least two tiles of side <i>minSide</i> each way?
+	 * @param width grid width
+	 * @param height grid height
+	 * @param minSide smallest allowed tile side
+	 * @return true if the grid can be tiled
+	 */
+	public static boolean fits(int width, int height, int minSide) {
+		return width / minSide >= 2 && height / minSide >= 2;
+	}
+
+	/**
+	 * Tile holding a cell.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return tile number
+	 */
+	public int tileOf(int x, int y) {
+		return columnTile[x] + rowTile[y] * tilesX;
+	}
+
+	/**
+	 * Colour of a tile.
+	 * @param tile tile number
+	 * @return colour from 0 to {@link #COLOURS} - 1
+	 */
+	public int colour(int tile) {
+		return (tile % tilesX & 1) + 2 * (tile / tilesX & 1);
+	}
+
+	/**
+	 * Every tile of one colour. The array belongs to the tiling and must not be modified.
+	 * @param colour colour from 0 to {@link #COLOURS} - 1
+	 * @return tile numbers
+	 */
+	public int[] acquireTiles(int colour) {
+		return byColour[colour];
+	}
+
+	/**
+	 * Number of tiles.
+	 * @return tiles
+	 */
+	public int size() {
+		return tilesX * tilesY;
+	}
+
+	public int getTilesX() {
+		return tilesX;
+	}
+
+	public int getTilesY() {
+		return tilesY;
+	}
+
+	/**
+	 * Even number of bands of at least <i>minSide</i> cells to cut <i>length</i> cells into, as close to <i>side</i> cells each as
+	 * possible.
+	 */
+	private static int count(int length, int side, int minSide) {
+		int n = Math.max(length / side, 2);
+		n = Math.min(n, length / minSide);
+		return n - n % 2;
+	}
+
+	/**
+	 * Cut <i>length</i> cells into <i>n</i> nearly equal bands.
+	 * @return cell -> band
+	 */
+	private static int[] bands(int length, int n) {
+		int[] band = new int[length];
+		for (int i = 0; i < n; i++) {
+			int from = (int)((long)i * length / n);
+			int to = (int)((long)(i + 1) * length / n);
+			for (int v = from; v < to; v++) {
+				band[v] = i;
+			}
+		}
+		return band;
+	}
+
+}
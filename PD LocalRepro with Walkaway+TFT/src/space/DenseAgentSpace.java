@@ -0,0 +1,192 @@
+package space;
+
+import sim.field.grid.Grid2D;
+import sim.field.grid.ObjectGrid2D;
+import sim.util.Bag;
+
+/**
+ * {@link AgentSpace} backed by MASON's {@link ObjectGrid2D}: one array slot per cell, so looking at a cell is a single array read instead of
+ * a hash lookup. Only usable by models that never put two agents in the same cell. The list of all agents is rebuilt from the grid when it
+ * is asked for after agents have been added or removed, and a {@link FreeCellIndex} is always kept.
+ */
+public class DenseAgentSpace implements AgentSpace {
+
+	private ObjectGrid2D grid;
+	private Object[][] field;
+	private int width, height;
+	private int count = 0;
+	private Bag all = new Bag();
+	private boolean allStale = false;
+	private int[] columns = new int[3], rows = new int[3];	// scratch: wrapped coordinates covered by a neighborhood query
+	private FreeCellIndex free;
+
+	public DenseAgentSpace(int width, int height) {
+		grid = new ObjectGrid2D(width, height);
+		field = grid.field;
+		this.width = width;
+		this.height = height;
+		free = new FreeCellIndex(width, height);
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int stx(int x) {
+		return x >= 0 ? (x < width ? x : x - width) : x + width;
+	}
+
+	@Override
+	public int sty(int y) {
+		return y >= 0 ? (y < height ? y : y - height) : y + height;
+	}
+
+	@Override
+	public boolean isEmpty(int x, int y) {
+		return field[x][y] == null;
+	}
+
+	@Override
+	public Object getObjectAt(int x, int y) {
+		return field[x][y];
+	}
+
+	@Override
+	public void add(Object o, int x, int y) {
+		if (field[x][y] != null) {
+			throw new IllegalStateException("Tried to put a second agent at (" + x + ", " + y + ") in a dense space");
+		}
+		field[x][y] = o;
+		free.occupy(x, y);
+		count++;
+		allStale = true;
+		return;
+	}
+
+	@Override
+	public void move(Object o, int fromx, int fromy, int tox, int toy) {
+		if (fromx == tox && fromy == toy) {
+			return;
+		}
+		if (field[tox][toy] != null) {
+			throw new IllegalStateException("Tried to move a second agent to (" + tox + ", " + toy + ") in a dense space");
+		}
+		field[fromx][fromy] = null;
+		field[tox][toy] = o;
+		free.release(fromx, fromy);
+		free.occupy(tox, toy);
+		return;
+	}
+
+	@Override
+	public void remove(Object o, int x, int y) {
+		if (field[x][y] == o) {
+			field[x][y] = null;
+			free.release(x, y);
+			count--;
+			allStale = true;
+		}
+		return;
+	}
+
+	@Override
+	public int numObjects() {
+		return count;
+	}
+
+	@Override
+	public Bag getAllObjects() {
+		if (allStale) {
+			all.clear();
+			for (int x = 0; x < width; x++) {
+				Object[] column = field[x];
+				for (int y = 0; y < height; y++) {
+					if (column[y] != null) {
+						all.add(column[y]);
+					}
+				}
+			}
+			allStale = false;
+		}
+		return all;
+	}
+
+	@Override
+	public Bag getMooreNeighbors(int x, int y, int dist, int mode, boolean includeOrigin) {
+		return getMooreNeighbors(x, y, dist, mode, includeOrigin, new Bag());
+	}
+
+	/**
+	 * The wrapped (or clipped) columns and rows are worked out once per query, so the scan itself is plain array reads.
+	 */
+	@Override
+	public Bag getMooreNeighbors(int x, int y, int dist, int mode, boolean includeOrigin, Bag result) {
+		result.clear();
+		int xmin = x - dist, xmax = x + dist;
+		int ymin = y - dist, ymax = y + dist;
+		if (mode == Grid2D.TOROIDAL) {
+			if (2 * dist + 1 >= width) {		// the neighborhood covers whole rows, so don't visit any column twice
+				xmin = 0;
+				xmax = width - 1;
+			}
+			if (2 * dist + 1 >= height) {
+				ymin = 0;
+				ymax = height - 1;
+			}
+		} else {
+			xmin = Math.max(xmin, 0);
+			xmax = Math.min(xmax, width - 1);
+			ymin = Math.max(ymin, 0);
+			ymax = Math.min(ymax, height - 1);
+		}
+		int nx = xmax - xmin + 1;
+		int ny = ymax - ymin + 1;
+		if (columns.length < nx) {
+			columns = new int[nx];
+		}
+		if (rows.length < ny) {
+			rows = new int[ny];
+		}
+		for (int i = 0; i < nx; i++) {
+			columns[i] = wrap(xmin + i, width);
+		}
+		for (int j = 0; j < ny; j++) {
+			rows[j] = wrap(ymin + j, height);
+		}
+		for (int i = 0; i < nx; i++) {
+			Object[] column = field[columns[i]];
+			for (int j = 0; j < ny; j++) {
+				Object o = column[rows[j]];
+				if (o != null && (includeOrigin || columns[i] != x || rows[j] != y)) {
+					result.add(o);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public FreeCellIndex acquireFreeCells() {
+		return free;
+	}
+
+	/**
+	 * Get the MASON field behind this space.
+	 * @return the object grid
+	 */
+	public ObjectGrid2D acquireGrid() {
+		return grid;
+	}
+
+	private static int wrap(int v, int n) {
+		return v >= 0 ? (v < n ? v : v % n) : (v % n + n) % n;
+	}
+
+}
@@ -0,0 +1,164 @@
+package space;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * The set of empty cells in a grid, kept so that a uniformly random empty cell can be drawn in constant time no matter how full the grid is.
+ * Cells are packed into a single int (<i>x</i> + <i>y</i> * width; see {@link #cell(int, int)}, {@link #x(int)} and {@link #y(int)}). The
+ * free cells are stored densely in one array with a reverse index from cell to position, so marking a cell occupied or free is a swap with
+ * the last entry rather than a search.
+ *
+ * <p>The index doesn't know about agents; whatever owns the grid calls {@link #occupy(int, int)} and {@link #release(int, int)} whenever a
+ * cell changes between empty and occupied. Both are safe to call when the cell is already in that state.
+ */
+public final class FreeCellIndex {
+
+	public static final int NONE = -1;		// returned by sample when there are no empty cells
+
+	private final int width, height;
+	private final int[] cells;				// the free cells, in positions [0, size)
+	private final int[] position;			// cell -> its position in cells, or NONE if occupied
+	private int size;
+
+	/**
+	 * Make an index for a grid that starts out empty.
+	 * @param width grid width
+	 * @param height grid height
+	 */
+	public FreeCellIndex(int width, int height) {
+		this.width = width;
+		this.height = height;
+		size = width * height;
+		cells = new int[size];
+		position = new int[size];
+		for (int c = 0; c < size; c++) {
+			cells[c] = c;
+			position[c] = c;
+		}
+	}
+
+	/**
+	 * Mark a cell occupied.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void occupy(int x, int y) {
+		int c = cell(x, y);
+		int p = position[c];
+		if (p == NONE) {
+			return;
+		}
+		int last = cells[--size];		// move the last free cell into the hole
+		cells[p] = last;
+		position[last] = p;
+		position[c] = NONE;
+		return;
+	}
+
+	/**
+	 * Mark a cell empty.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void release(int x, int y) {
+		int c = cell(x, y);
+		if (position[c] != NONE) {
+			return;
+		}
+		cells[size] = c;
+		position[c] = size++;
+		return;
+	}
+
+	/**
+	 * Mark one cell empty and another occupied at once, as when an agent moves: the cell being left takes over the free-list position of
+	 * the cell being entered. Only those two cells' entries change, so threads moving agents in parts of the grid that don't overlap can
+	 * call this at the same time. If the cells aren't occupied and empty respectively, this falls back to {@link #release(int, int)} and
+	 * {@link #occupy(int, int)}, which aren't safe to call concurrently.
+	 * @param fromx x-coordinate of the cell being left
+	 * @param fromy y-coordinate of the cell being left
+	 * @param tox x-coordinate of the cell being entered
+	 * @param toy y-coordinate of the cell being entered
+	 */
+	public void move(int fromx, int fromy, int tox, int toy) {
+		int from = cell(fromx, fromy);
+		int to = cell(tox, toy);
+		int p = position[to];
+		if (p == NONE || position[from] != NONE) {
+			release(fromx, fromy);
+			occupy(tox, toy);
+			return;
+		}
+		cells[p] = from;
+		position[from] = p;
+		position[to] = NONE;
+		return;
+	}
+
+	/**
+	 * Is this cell empty?
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return true if the cell is free
+	 */
+	public boolean isFree(int x, int y) {
+		return position[cell(x, y)] != NONE;
+	}
+
+	/**
+	 * Number of empty cells.
+	 * @return empty cells
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Draw a uniformly random empty cell.
+	 * @param random the simulation's random number generator
+	 * @return packed cell, or {@link #NONE} if the grid is full
+	 */
+	public int sample(MersenneTwisterFast random) {
+		if (size == 0) {
+			return NONE;
+		}
+		return cells[random.nextInt(size)];
+	}
+
+	/**
+	 * Pack a location into a cell number.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return packed cell
+	 */
+	public int cell(int x, int y) {
+		return x + y * width;
+	}
+
+	/**
+	 * x-coordinate of a packed cell.
+	 * @param cell packed cell
+	 * @return x-coordinate
+	 */
+	public int x(int cell) {
+		return cell % width;
+	}
+
+	/**
+	 * y-coordinate of a packed cell.
+	 * @param cell packed cell
+	 * @return y-coordinate
+	 */
+	public int y(int cell) {
+		return cell / width;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+}
@@ -0,0 +1,99 @@
+package space;
+
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Draws the cells of a Moore neighborhood in random order without replacement, for finding a random cell near a location that satisfies
+ * some test (usually being empty). The draw is a lazy Fisher-Yates shuffle over the neighborhood's offsets: each {@link #next(MersenneTwisterFast)}
+ * costs one random number, and the caller can stop as soon as it finds a cell it likes, so nobody pays for shuffling cells they never look
+ * at. The offset buffer is reused between searches, so searching allocates nothing once the buffer is big enough for the radius in use.
+ *
+ * <p>The space is toroidal, and a neighborhood wider than the grid is clipped so no cell is drawn twice. Cells are packed the same way as in
+ * {@link FreeCellIndex} (<i>x</i> + <i>y</i> * width). Using the simulation's generator keeps searches replicable from the seed.
+ *
+ * <tt><pre>
+ * sampler.start(x, y, radius);
+ * while (sampler.hasNext()) {
+ *     int cell = sampler.next(random);
+ *     if (space.isEmpty(sampler.x(cell), sampler.y(cell))) { ... }
+ * }
+ * </pre></tt>
+ */
+public final class LocalSampler {
+
+	private final int width, height;
+	private int[] offsets = new int[9];		// offset numbers not drawn yet are in [drawn, count)
+	private int count, drawn;
+	private int x0, y0, spany;
+
+	public LocalSampler(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Start drawing the cells within <i>radius</i> of (<i>x</i>, <i>y</i>), including (<i>x</i>, <i>y</i>) itself.
+	 * @param x x-coordinate of the center
+	 * @param y y-coordinate of the center
+	 * @param radius neighborhood radius
+	 */
+	public void start(int x, int y, int radius) {
+		int spanx = Math.min(2 * radius + 1, width);
+		spany = Math.min(2 * radius + 1, height);
+		count = spanx * spany;
+		if (offsets.length < count) {
+			offsets = new int[count];
+		}
+		for (int i = 0; i < count; i++) {
+			offsets[i] = i;
+		}
+		drawn = 0;
+		x0 = x - radius;
+		y0 = y - radius;
+		return;
+	}
+
+	/**
+	 * Are there cells left to draw?
+	 * @return true if there are
+	 */
+	public boolean hasNext() {
+		return drawn < count;
+	}
+
+	/**
+	 * Draw the next cell, uniformly from those not drawn yet.
+	 * @param random the simulation's random number generator
+	 * @return packed cell
+	 */
+	public int next(MersenneTwisterFast random) {
+		int j = drawn + random.nextInt(count - drawn);
+		int pick = offsets[j];
+		offsets[j] = offsets[drawn];
+		offsets[drawn++] = pick;
+		return wrap(x0 + pick / spany, width) + wrap(y0 + pick % spany, height) * width;
+	}
+
+	/**
+	 * x-coordinate of a packed cell.
+	 * @param cell packed cell
+	 * @return x-coordinate
+	 */
+	public int x(int cell) {
+		return cell % width;
+	}
+
+	/**
+	 * y-coordinate of a packed cell.
+	 * @param cell packed cell
+	 * @return y-coordinate
+	 */
+	public int y(int cell) {
+		return cell / width;
+	}
+
+	private static int wrap(int v, int n) {
+		return v >= 0 ? (v < n ? v : v % n) : (v % n + n) % n;
+	}
+
+}
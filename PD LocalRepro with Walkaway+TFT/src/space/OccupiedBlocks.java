@@ -0,0 +1,203 @@
+package space;
+
+import java.util.Arrays;
+
+import sim.util.IntBag;
+
+/**
+ * The occupied cells of a grid, grouped by square block, so that the agents near a point can be counted and drawn from without looking at
+ * the empty cells around them. Each block keeps its occupied cells densely in its own segment of one array, with a reverse index from cell to
+ * position, as {@link FreeCellIndex} does for the free cells; occupying, vacating and moving are constant time. Cells are packed as in
+ * {@link FreeCellIndex#cell(int, int)}.
+ *
+ * <p>Like {@link FreeCellIndex}, this doesn't know about agents; whatever owns the grid calls {@link #occupy(int, int)},
+ * {@link #vacate(int, int)} and {@link #move(int, int, int, int)} as agents arrive, leave and move. A cell holds at most one agent.
+ */
+public final class OccupiedBlocks {
+
+	private static final int NONE = -1;
+
+	private final int width, height;
+	private final int side;
+	private final int blocksX;
+	private final int[] counts;				// block -> occupied cells in it
+	private final int[] cells;				// block b's occupied cells, in positions [b * side * side, + counts[b])
+	private final int[] position;			// cell -> its position in cells, or NONE if empty
+
+	/**
+	 * Make an index for a grid that starts out empty.
+	 * @param width grid width
+	 * @param height grid height
+	 * @param side block side in cells; blocks on the right and bottom edges may be cut short by the grid
+	 */
+	public OccupiedBlocks(int width, int height, int side) {
+		this.width = width;
+		this.height = height;
+		this.side = side;
+		blocksX = (width + side - 1) / side;
+		int blocks = blocksX * ((height + side - 1) / side);
+		counts = new int[blocks];
+		cells = new int[blocks * side * side];
+		position = new int[width * height];
+		Arrays.fill(position, NONE);
+	}
+
+	/**
+	 * Mark a cell occupied.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void occupy(int x, int y) {
+		int c = x + y * width;
+		if (position[c] != NONE) {
+			return;
+		}
+		int b = block(x, y);
+		int p = b * side * side + counts[b]++;
+		cells[p] = c;
+		position[c] = p;
+		return;
+	}
+
+	/**
+	 * Mark a cell empty.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 */
+	public void vacate(int x, int y) {
+		int c = x + y * width;
+		int p = position[c];
+		if (p == NONE) {
+			return;
+		}
+		int b = block(x, y);
+		int last = cells[b * side * side + --counts[b]];		// move the block's last cell into the hole
+		cells[p] = last;
+		position[last] = p;
+		position[c] = NONE;
+		return;
+	}
+
+	/**
+	 * An agent has moved from one cell to another.
+	 * @param fromx x-coordinate of the cell left
+	 * @param fromy y-coordinate of the cell left
+	 * @param tox x-coordinate of the cell entered
+	 * @param toy y-coordinate of the cell entered
+	 */
+	public void move(int fromx, int fromy, int tox, int toy) {
+		if (block(fromx, fromy) != block(tox, toy)) {
+			vacate(fromx, fromy);
+			occupy(tox, toy);
+			return;
+		}
+		int from = fromx + fromy * width;
+		int to = tox + toy * width;
+		int p = position[from];
+		cells[p] = to;				// same block: the new cell takes the old one's place
+		position[to] = p;
+		position[from] = NONE;
+		return;
+	}
+
+	/**
+	 * Find the blocks overlapping the neighborhood within <i>radius</i> of a cell (Moore, toroidal, including the cell itself), and count
+	 * the occupied cells in them. Each block is listed once, and the count never undercounts the neighborhood.
+	 * @param cx x-coordinate
+	 * @param cy y-coordinate
+	 * @param radius neighborhood radius
+	 * @param blocks bag to fill with the blocks, or null just to count; it is cleared first
+	 * @return occupied cells in the overlapped blocks
+	 */
+	public int around(int cx, int cy, int radius, IntBag blocks) {
+		if (blocks != null) {
+			blocks.clear();
+		}
+		int total = 0;
+		// a neighborhood that could wrap back into the block it started in is widened to every row (or column), starting at the top (or
+		// left), so each block is visited once
+		int spanx = 2 * radius + 1 > width - side ? width : 2 * radius + 1;
+		int spany = 2 * radius + 1 > height - side ? height : 2 * radius + 1;
+		int y = spany == height ? 0 : wrap(cy - radius, height);
+		int x0 = spanx == width ? 0 : wrap(cx - radius, width);
+		for (int lefty = spany; lefty > 0; ) {		// one band of blocks at a time
+			int by = y / side;
+			int takey = Math.min(lefty, Math.min((by + 1) * side, height) - y);
+			int x = x0;
+			for (int leftx = spanx; leftx > 0; ) {
+				int bx = x / side;
+				int takex = Math.min(leftx, Math.min((bx + 1) * side, width) - x);
+				int b = bx + by * blocksX;
+				total += counts[b];
+				if (blocks != null) {
+					blocks.add(b);
+				}
+				leftx -= takex;
+				x = x + takex == width ? 0 : x + takex;
+			}
+			lefty -= takey;
+			y = y + takey == height ? 0 : y + takey;
+		}
+		return total;
+	}
+
+	/**
+	 * Number of occupied cells in a block.
+	 * @param block block number, as found by {@link #around(int, int, int, IntBag)}
+	 * @return occupied cells
+	 */
+	public int count(int block) {
+		return counts[block];
+	}
+
+	/**
+	 * One of a block's occupied cells.
+	 * @param block block number
+	 * @param k index from 0 to {@link #count(int)} - 1
+	 * @return packed cell
+	 */
+	public int cell(int block, int k) {
+		return cells[block * side * side + k];
+	}
+
+	/**
+	 * x-coordinate of a packed cell.
+	 * @param cell packed cell
+	 * @return x-coordinate
+	 */
+	public int x(int cell) {
+		return cell % width;
+	}
+
+	/**
+	 * y-coordinate of a packed cell.
+	 * @param cell packed cell
+	 * @return y-coordinate
+	 */
+	public int y(int cell) {
+		return cell / width;
+	}
+
+	/**
+	 * Block a cell is in.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return block number
+	 */
+	public int block(int x, int y) {
+		return x / side + (y / side) * blocksX;
+	}
+
+	/**
+	 * Number of blocks; block numbers run from 0 to this less one.
+	 * @return blocks
+	 */
+	public int size() {
+		return counts.length;
+	}
+
+	private static int wrap(int v, int n) {
+		return v >= 0 ? (v < n ? v : v % n) : (v % n + n) % n;
+	}
+
+}
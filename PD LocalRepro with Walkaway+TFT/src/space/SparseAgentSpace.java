@@ -0,0 +1,130 @@
+package space;
+
+import sim.field.grid.SparseGrid2D;
+import sim.util.Bag;
+import sim.util.IntBag;
+
+/**
+ * {@link AgentSpace} backed by MASON's {@link SparseGrid2D}. Any number of agents can share a cell, and this is the space the GUI draws.
+ * Keeping a {@link FreeCellIndex} is optional since it costs a cell lookup whenever an agent leaves a cell.
+ */
+public class SparseAgentSpace implements AgentSpace {
+
+	private SparseGrid2D grid;
+	private IntBag xPos = new IntBag(), yPos = new IntBag();	// scratch locations for neighborhood queries
+	private FreeCellIndex free;		// null if not tracked
+
+	public SparseAgentSpace(SparseGrid2D grid) {
+		this(grid, false);
+	}
+
+	/**
+	 * @param grid the MASON field to wrap
+	 * @param trackFreeCells keep an index of empty cells?
+	 */
+	public SparseAgentSpace(SparseGrid2D grid, boolean trackFreeCells) {
+		this.grid = grid;
+		if (trackFreeCells) {
+			free = new FreeCellIndex(grid.getWidth(), grid.getHeight());
+		}
+	}
+
+	@Override
+	public int getWidth() {
+		return grid.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return grid.getHeight();
+	}
+
+	@Override
+	public int stx(int x) {
+		return grid.stx(x);
+	}
+
+	@Override
+	public int sty(int y) {
+		return grid.sty(y);
+	}
+
+	@Override
+	public boolean isEmpty(int x, int y) {
+		Bag b = grid.getObjectsAtLocation(x, y);
+		return b == null || b.numObjs == 0;
+	}
+
+	@Override
+	public Object getObjectAt(int x, int y) {
+		Bag b = grid.getObjectsAtLocation(x, y);
+		if (b == null || b.numObjs == 0) {
+			return null;
+		}
+		return b.objs[0];
+	}
+
+	@Override
+	public void add(Object o, int x, int y) {
+		grid.setObjectLocation(o, x, y);
+		if (free != null) {
+			free.occupy(x, y);
+		}
+		return;
+	}
+
+	@Override
+	public void move(Object o, int fromx, int fromy, int tox, int toy) {
+		grid.setObjectLocation(o, tox, toy);
+		if (free != null) {
+			free.occupy(tox, toy);
+			if (isEmpty(fromx, fromy)) {		// someone else may still be there
+				free.release(fromx, fromy);
+			}
+		}
+		return;
+	}
+
+	@Override
+	public void remove(Object o, int x, int y) {
+		grid.remove(o);
+		if (free != null && isEmpty(x, y)) {
+			free.release(x, y);
+		}
+		return;
+	}
+
+	@Override
+	public int numObjects() {
+		return grid.allObjects.numObjs;
+	}
+
+	@Override
+	public Bag getAllObjects() {
+		return grid.allObjects;
+	}
+
+	@Override
+	public Bag getMooreNeighbors(int x, int y, int dist, int mode, boolean includeOrigin) {
+		return grid.getMooreNeighbors(x, y, dist, mode, includeOrigin);
+	}
+
+	@Override
+	public Bag getMooreNeighbors(int x, int y, int dist, int mode, boolean includeOrigin, Bag result) {
+		return grid.getMooreNeighbors(x, y, dist, mode, includeOrigin, result, xPos, yPos);
+	}
+
+	@Override
+	public FreeCellIndex acquireFreeCells() {
+		return free;
+	}
+
+	/**
+	 * Get the MASON field behind this space.
+	 * @return the sparse grid
+	 */
+	public SparseGrid2D acquireGrid() {
+		return grid;
+	}
+
+}